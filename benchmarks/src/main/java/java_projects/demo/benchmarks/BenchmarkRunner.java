@@ -0,0 +1,24 @@
+package java_projects.demo.benchmarks;
+
+import org.openjdk.jmh.Main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs the JMH benchmarks and writes the results as JSON, so the runs can be compared to find regressions.
+ * Every JMH option can be given; -rf and -rff replace the default format and file
+ */
+public class BenchmarkRunner {
+    public static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+    public static void main(String[] args) throws Exception {
+        List<String> options = new ArrayList<>(Arrays.asList(args));
+        if (!options.contains("-rf"))
+            options.addAll(List.of("-rf", "json"));
+        if (!options.contains("-rff"))
+            options.addAll(List.of("-rff", DEFAULT_RESULT_FILE));
+        Main.main(options.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,64 @@
+package java_projects.demo.benchmarks;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * The bodies of the messages stored the way they were before they moved to a single column: in rows of 256
+ * characters of the messagesContent table, read back in order. Kept to compare the two ways of storing them
+ */
+public class ChunkedMessageBodies {
+    private static final int PART_LENGTH = 256;
+
+    public static void createTable(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create table if not exists messagesContent(idMessage bigint, partOrder int, " +
+                    "content varchar(256), primary key (idMessage, partOrder))");
+        }
+    }
+
+    /**
+     * Replaces the body of a message
+     *
+     * @param connection - Connection
+     * @param idMessage  - long
+     * @param body       - String
+     */
+    public static void write(Connection connection, long idMessage, String body) throws SQLException {
+        try (PreparedStatement delete = connection.prepareStatement(
+                "DELETE FROM messagesContent WHERE idMessage = ?")) {
+            delete.setLong(1, idMessage);
+            delete.executeUpdate();
+        }
+        try (PreparedStatement insert = connection.prepareStatement(
+                "Insert into messagesContent(idMessage, partOrder, content) values(?, ?, ?)")) {
+            int partOrder = 1;
+            int start = 0;
+            do {
+                int end = Math.min(body.length(), start + PART_LENGTH);
+                insert.setLong(1, idMessage);
+                insert.setInt(2, partOrder++);
+                insert.setString(3, body.substring(start, end));
+                insert.addBatch();
+                start = end;
+            } while (start < body.length());
+            insert.executeBatch();
+        }
+    }
+
+    public static String read(Connection connection, long idMessage) throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement(
+                "Select content from messagesContent where idMessage = ? order by partOrder")) {
+            select.setLong(1, idMessage);
+            try (ResultSet resultSet = select.executeQuery()) {
+                StringBuilder body = new StringBuilder();
+                while (resultSet.next())
+                    body.append(resultSet.getString(1));
+                return body.toString();
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package java_projects.demo.benchmarks;
+
+import java_projects.demo.utils.DataTypeConvertors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DataTypeConvertorsBenchmark {
+    private final LocalDateTime dateTime = LocalDateTime.of(2024, 3, 7, 9, 5, 42);
+
+    @Benchmark
+    public String getDateStringFromDateTime() {
+        return DataTypeConvertors.getDateStringFromDateTime(dateTime);
+    }
+
+    @Benchmark
+    public String getCompressedTimeStringFromDateTime() {
+        return DataTypeConvertors.getCompressedTimeStringFromDateTime(dateTime);
+    }
+
+    @Benchmark
+    public String getTimeStringFromDateTime() {
+        return DataTypeConvertors.getTimeStringFromDateTime(dateTime);
+    }
+
+    @Benchmark
+    public String getDateStringFromDateTimeCompressed() {
+        return DataTypeConvertors.getDateStringFromDateTimeCompressed(dateTime);
+    }
+}
@@ -0,0 +1,125 @@
+package java_projects.demo.benchmarks;
+
+import java_projects.demo.events.EventBus;
+import java_projects.demo.events.WaitStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes a burst of events and waits until every subscriber handled them, on the EventBus with each wait strategy
+ * and, as the baseline, with an ArrayBlockingQueue and a thread for every subscriber. Busy spinning is left out,
+ * since it needs a free core for every subscriber
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventBusBenchmark {
+    public static final String BLOCKING_QUEUE = "blockingQueue";
+
+    private static final int BURST = 256;
+    private static final int CAPACITY = 1024;
+    private static final LocalDateTime MOMENT = LocalDateTime.of(2024, 1, 1, 8, 0);
+
+    @Param({"blocking", "sleeping", "yielding", BLOCKING_QUEUE})
+    public String waitStrategy;
+
+    @Param({"1", "3"})
+    public int subscribers;
+
+    private EventBus eventBus;
+    private List<EventBus.Subscription> subscriptions;
+    private List<BlockingQueue<Long>> queues;
+    private List<Thread> queueThreads;
+    private AtomicLong[] handled;
+    private long published = -1;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        handled = new AtomicLong[subscribers];
+        for (int i = 0; i < subscribers; i++)
+            handled[i] = new AtomicLong(-1);
+
+        if (BLOCKING_QUEUE.equals(waitStrategy)) {
+            queues = new ArrayList<>();
+            queueThreads = new ArrayList<>();
+            for (int i = 0; i < subscribers; i++) {
+                BlockingQueue<Long> queue = new ArrayBlockingQueue<>(CAPACITY);
+                AtomicLong counter = handled[i];
+                Thread thread = new Thread(() -> {
+                    try {
+                        while (true)
+                            counter.lazySet(queue.take());
+                    } catch (InterruptedException e) {
+                        // the benchmark is over
+                    }
+                });
+                thread.setDaemon(true);
+                thread.start();
+                queues.add(queue);
+                queueThreads.add(thread);
+            }
+            return;
+        }
+
+        eventBus = new EventBus(CAPACITY, switch (waitStrategy) {
+            case "blocking" -> WaitStrategy.blocking();
+            case "yielding" -> WaitStrategy.yielding();
+            default -> WaitStrategy.sleeping();
+        });
+        subscriptions = new ArrayList<>();
+        for (int i = 0; i < subscribers; i++) {
+            AtomicLong counter = handled[i];
+            subscriptions.add(eventBus.subscribe((event, sequence, endOfBatch) -> counter.lazySet(sequence)));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (eventBus != null)
+            eventBus.close();
+        if (queueThreads != null)
+            for (Thread thread : queueThreads)
+                thread.interrupt();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public void publishBurst() throws InterruptedException {
+        for (int i = 0; i < BURST; i++) {
+            published++;
+            if (eventBus != null) {
+                eventBus.messagesReceived("sender", "receiver", MOMENT);
+            } else {
+                for (BlockingQueue<Long> queue : queues)
+                    queue.put(published);
+            }
+        }
+        // yielding leaves the processor to the subscribers when there are fewer cores than threads
+        for (AtomicLong counter : handled)
+            while (counter.get() < published)
+                Thread.yield();
+    }
+}
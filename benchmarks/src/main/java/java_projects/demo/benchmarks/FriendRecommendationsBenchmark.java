@@ -0,0 +1,75 @@
+package java_projects.demo.benchmarks;
+
+import java_projects.demo.domain.FriendRecommendation;
+import java_projects.demo.domain.Friendship;
+import java_projects.demo.service.FriendshipGraph;
+import java_projects.demo.service.ServiceFriendRecommendations;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recommendations on a generated graph kept in memory; the graph is built from friendships, not from a database
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class FriendRecommendationsBenchmark {
+    @Param({"100000", "1000000"})
+    public int friendships;
+
+    // the users have friendships * 2 / users friends on average
+    @Param({"50000"})
+    public int users;
+
+    private FriendshipGraph friendshipGraph;
+    private ServiceFriendRecommendations recommendations;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        LocalDateTime moment = LocalDateTime.of(2024, 1, 1, 0, 0);
+        List<Friendship> generated = new ArrayList<>(friendships);
+        for (int i = 0; i < friendships; i++) {
+            // a skewed choice of the first friend gives a few users many friends, like a real network
+            int user1 = (int) (users * Math.pow(random.nextDouble(), 2));
+            int user2 = random.nextInt(users);
+            if (user1 != user2)
+                generated.add(new Friendship(SyntheticDatabase.username(user1), SyntheticDatabase.username(user2),
+                        moment, false, true));
+        }
+        friendshipGraph = new FriendshipGraph(generated);
+        recommendations = new ServiceFriendRecommendations(friendshipGraph);
+    }
+
+    @Benchmark
+    public List<FriendRecommendation> getRecommendations() {
+        return recommendations.getRecommendations(
+                SyntheticDatabase.username(ThreadLocalRandom.current().nextInt(users)));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void precomputeAll() {
+        recommendations.precomputeAll();
+    }
+}
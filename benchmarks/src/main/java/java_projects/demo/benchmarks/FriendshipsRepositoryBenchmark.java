@@ -0,0 +1,78 @@
+package java_projects.demo.benchmarks;
+
+import java_projects.demo.domain.Friendship;
+import java_projects.demo.domain.FriendshipKey;
+import java_projects.demo.repository.FriendshipsRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FriendshipsRepositoryBenchmark {
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"1000", "100000"})
+    public int users;
+
+    @Param({"10"})
+    public int friendsPerUser;
+
+    private SyntheticDatabase database;
+    private FriendshipsRepository friendshipsRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new SyntheticDatabase(users, friendsPerUser, 0);
+        friendshipsRepository = new FriendshipsRepository(database.getConnectionPool());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        database.close();
+    }
+
+    private int randomUser() {
+        return ThreadLocalRandom.current().nextInt(users);
+    }
+
+    @Benchmark
+    public Friendship findById() {
+        int user = randomUser();
+        return friendshipsRepository.findById(new FriendshipKey(SyntheticDatabase.username(user),
+                SyntheticDatabase.username(database.friendOf(user, 0))));
+    }
+
+    @Benchmark
+    public List<Friendship> findFriendsOf() {
+        return friendshipsRepository.findFriendsOf(SyntheticDatabase.username(randomUser()), null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Friendship> findIncomingRequests() {
+        return friendshipsRepository.findIncomingRequests(SyntheticDatabase.username(randomUser()), null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public int size() {
+        return friendshipsRepository.size();
+    }
+}
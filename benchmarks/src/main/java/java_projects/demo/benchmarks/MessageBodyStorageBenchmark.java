@@ -0,0 +1,112 @@
+package java_projects.demo.benchmarks;
+
+import java_projects.demo.domain.Message;
+import java_projects.demo.repository.MessagesRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes and reads the bodies of messages stored in one of three ways: chunked in rows of 256 characters, like
+ * before, in the body column as text, or in the body column compressed above the default threshold.
+ * MessageStorageFootprint measures how much disk the same ways take
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageBodyStorageBenchmark {
+    public static final String CHUNKED = "chunked";
+    public static final String SINGLE = "single";
+    public static final String COMPRESSED = "compressed";
+
+    private static final int MESSAGES = 1_000;
+
+    @Param({CHUNKED, SINGLE, COMPRESSED})
+    public String storage;
+
+    @Param({"200", "2000", "20000"})
+    public int bodyLength;
+
+    private SyntheticDatabase database;
+    private MessagesRepository messagesRepository;
+    private String[] bodies;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        database = new SyntheticDatabase(2, 0, 0);
+        messagesRepository = new MessagesRepository(database.getConnectionPool());
+        configure(messagesRepository, storage);
+
+        bodies = new String[MESSAGES];
+        List<Message> messages = new ArrayList<>(MESSAGES);
+        for (int i = 0; i < MESSAGES; i++) {
+            bodies[i] = SyntheticDatabase.text(i, bodyLength);
+            messages.add(new Message((long) i + 1, SyntheticDatabase.username(0), SyntheticDatabase.username(1),
+                    CHUNKED.equals(storage) ? "" : bodies[i]));
+        }
+        messagesRepository.addAll(messages);
+        if (CHUNKED.equals(storage)) {
+            try (Connection connection = database.getConnectionPool().getConnection()) {
+                ChunkedMessageBodies.createTable(connection);
+                for (int i = 0; i < MESSAGES; i++)
+                    ChunkedMessageBodies.write(connection, i + 1, bodies[i]);
+            }
+        }
+    }
+
+    /**
+     * Sets the repository to store the bodies the chosen way; chunked bodies are not written by the repository
+     */
+    static void configure(MessagesRepository messagesRepository, String storage) {
+        messagesRepository.setCompressionThreshold(COMPRESSED.equals(storage) ?
+                MessagesRepository.DEFAULT_COMPRESSION_THRESHOLD : Integer.MAX_VALUE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        database.close();
+    }
+
+    @Benchmark
+    public void write() throws SQLException {
+        int index = ThreadLocalRandom.current().nextInt(MESSAGES);
+        if (CHUNKED.equals(storage)) {
+            try (Connection connection = database.getConnectionPool().getConnection()) {
+                ChunkedMessageBodies.write(connection, index + 1, bodies[index]);
+            }
+        } else {
+            messagesRepository.insertMessageContent((long) index + 1, bodies[index]);
+        }
+    }
+
+    @Benchmark
+    public String read() throws SQLException {
+        long idMessage = ThreadLocalRandom.current().nextInt(MESSAGES) + 1;
+        if (CHUNKED.equals(storage)) {
+            try (Connection connection = database.getConnectionPool().getConnection()) {
+                return ChunkedMessageBodies.read(connection, idMessage);
+            }
+        }
+        return messagesRepository.getMessageContentById(idMessage);
+    }
+}
@@ -0,0 +1,85 @@
+package java_projects.demo.benchmarks;
+
+import java_projects.demo.domain.ConversationSummary;
+import java_projects.demo.domain.Message;
+import java_projects.demo.repository.MessagesRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the list of conversations of a user with the previews of the last messages only, and with their whole
+ * content loaded too, like the list was read before the messages could be read without their content
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageProjectionBenchmark {
+    private static final int USERS = 500;
+    private static final int CONVERSATIONS_PER_USER = 20;
+
+    @Param({"100", "5000"})
+    public int bodyLength;
+
+    private SyntheticDatabase database;
+    private MessagesRepository messagesRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new SyntheticDatabase(USERS, 0, 0);
+        messagesRepository = new MessagesRepository(database.getConnectionPool());
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 8, 0);
+        List<Message> messages = new ArrayList<>();
+        long id = 1;
+        for (int i = 0; i < USERS; i++) {
+            for (int k = 1; k <= CONVERSATIONS_PER_USER / 2; k++) {
+                Message message = new Message(id, SyntheticDatabase.username(i),
+                        SyntheticDatabase.username((i + k) % USERS), SyntheticDatabase.text(id, bodyLength));
+                message.setMessageTime(start.plusSeconds(id));
+                messages.add(message);
+                id++;
+            }
+        }
+        messagesRepository.addAll(messages);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        database.close();
+    }
+
+    @Benchmark
+    public List<ConversationSummary> conversationSummaries() {
+        return messagesRepository.getConversationSummariesOfUser(
+                SyntheticDatabase.username(ThreadLocalRandom.current().nextInt(USERS)));
+    }
+
+    @Benchmark
+    public List<ConversationSummary> conversationSummariesWithContent() {
+        List<ConversationSummary> summaries = conversationSummaries();
+        List<Message> lastMessages = new ArrayList<>(summaries.size());
+        for (ConversationSummary summary : summaries)
+            lastMessages.add(summary.getLastMessage());
+        messagesRepository.loadMessageContents(lastMessages);
+        return summaries;
+    }
+}
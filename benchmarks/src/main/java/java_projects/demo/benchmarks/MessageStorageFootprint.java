@@ -0,0 +1,76 @@
+package java_projects.demo.benchmarks;
+
+import java_projects.demo.domain.Message;
+import java_projects.demo.repository.MessagesRepository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Measures the disk taken by the bodies of the messages stored in each way of MessageBodyStorageBenchmark: the
+ * messages are written to an H2 database file, which is compacted before its size is read. Run it with
+ * java -cp benchmarks/target/benchmarks.jar java_projects.demo.benchmarks.MessageStorageFootprint [messages]
+ */
+public class MessageStorageFootprint {
+    private static final int[] BODY_LENGTHS = {200, 2_000, 20_000};
+    private static final String[] STORAGES = {MessageBodyStorageBenchmark.CHUNKED,
+            MessageBodyStorageBenchmark.SINGLE, MessageBodyStorageBenchmark.COMPRESSED};
+
+    public static void main(String[] args) throws Exception {
+        int messages = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        Path directory = Files.createTempDirectory("message-footprint");
+        try {
+            long emptySize = measure(directory, "empty", 0, messages);
+            System.out.printf("%-12s %10s %14s %16s%n", "storage", "bodyLength", "fileBytes", "bytesPerMessage");
+            for (int bodyLength : BODY_LENGTHS) {
+                for (String storage : STORAGES) {
+                    long size = measure(directory, storage, bodyLength, messages);
+                    System.out.printf("%-12s %10d %14d %16.1f%n", storage, bodyLength, size,
+                            (size - emptySize) / (double) messages);
+                }
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList())
+                    Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * Writes the messages to a new database file and returns its size after compaction
+     */
+    private static long measure(Path directory, String storage, int bodyLength, int messageCount)
+            throws SQLException, IOException {
+        Path file = directory.resolve(storage + "-" + bodyLength);
+        try (SyntheticDatabase database = new SyntheticDatabase("jdbc:h2:file:" + file, 2, 0, 0)) {
+            MessagesRepository messagesRepository = new MessagesRepository(database.getConnectionPool());
+            MessageBodyStorageBenchmark.configure(messagesRepository, storage);
+            boolean chunked = MessageBodyStorageBenchmark.CHUNKED.equals(storage);
+            List<Message> messages = new ArrayList<>(messageCount);
+            for (int i = 0; i < messageCount; i++)
+                messages.add(new Message((long) i + 1, SyntheticDatabase.username(0), SyntheticDatabase.username(1),
+                        chunked ? "" : SyntheticDatabase.text(i, bodyLength)));
+            messagesRepository.addAll(messages);
+            if (chunked) {
+                try (Connection connection = database.getConnectionPool().getConnection()) {
+                    ChunkedMessageBodies.createTable(connection);
+                    for (int i = 0; i < messageCount; i++)
+                        ChunkedMessageBodies.write(connection, i + 1, SyntheticDatabase.text(i, bodyLength));
+                }
+            }
+            try (Connection connection = DriverManager.getConnection(database.getUrl(), "sa", "")) {
+                connection.createStatement().execute("SHUTDOWN COMPACT");
+            }
+        }
+        return Files.size(Path.of(file + ".mv.db"));
+    }
+}
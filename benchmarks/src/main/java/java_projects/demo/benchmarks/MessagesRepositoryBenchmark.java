@@ -0,0 +1,76 @@
+package java_projects.demo.benchmarks;
+
+import java_projects.demo.domain.ConversationSummary;
+import java_projects.demo.domain.Message;
+import java_projects.demo.repository.MessagesRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessagesRepositoryBenchmark {
+    @Param({"1000", "10000"})
+    public int users;
+
+    @Param({"100"})
+    public int messagesPerConversation;
+
+    private SyntheticDatabase database;
+    private MessagesRepository messagesRepository;
+    private long messageCount;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new SyntheticDatabase(users, 1, messagesPerConversation);
+        messagesRepository = new MessagesRepository(database.getConnectionPool());
+        messageCount = (long) users * messagesPerConversation;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        database.close();
+    }
+
+    private int randomUser() {
+        return ThreadLocalRandom.current().nextInt(users);
+    }
+
+    @Benchmark
+    public Message findById() {
+        return messagesRepository.findById(ThreadLocalRandom.current().nextLong(messageCount) + 1);
+    }
+
+    @Benchmark
+    public List<ConversationSummary> getConversationSummariesOfUser() {
+        return messagesRepository.getConversationSummariesOfUser(SyntheticDatabase.username(randomUser()));
+    }
+
+    @Benchmark
+    public Long generateAvailableId() {
+        return messagesRepository.generateAvailableId();
+    }
+
+    @Benchmark
+    public int size() {
+        return messagesRepository.size();
+    }
+}
@@ -0,0 +1,57 @@
+package java_projects.demo.benchmarks;
+
+import java_projects.demo.utils.PasswordEncryption;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordEncryptionBenchmark {
+    private static final String PASSWORD = "a-password-of-a-user";
+    private static final String SALT = "2kQf9XbT7mLp4sWz";
+    private static final String SECRET_KEY = "my-very-strong-password";
+
+    private final String encrypted = PasswordEncryption.encrypt(PASSWORD, SALT, SECRET_KEY);
+    private final String encryptedWithRandomIv = PasswordEncryption.encryptWithRandomIv(PASSWORD, SALT, SECRET_KEY);
+
+    @Benchmark
+    public String encrypt() {
+        return PasswordEncryption.encrypt(PASSWORD, SALT, SECRET_KEY);
+    }
+
+    @Benchmark
+    public String decrypt() {
+        return PasswordEncryption.decrypt(encrypted, SALT, SECRET_KEY);
+    }
+
+    @Benchmark
+    public String encryptWithRandomIv() {
+        return PasswordEncryption.encryptWithRandomIv(PASSWORD, SALT, SECRET_KEY);
+    }
+
+    @Benchmark
+    public String decryptWithRandomIv() {
+        return PasswordEncryption.decryptWithRandomIv(encryptedWithRandomIv, SALT, SECRET_KEY);
+    }
+
+    // a new salt for every password derives a new key every time, which is how passwords were encrypted before
+    // the derived keys were reused
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public String encryptWithNewSalt() {
+        return PasswordEncryption.encrypt(PASSWORD, PasswordEncryption.getSalt(16), SECRET_KEY);
+    }
+}
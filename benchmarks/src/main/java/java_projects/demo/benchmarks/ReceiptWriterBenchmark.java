@@ -0,0 +1,95 @@
+package java_projects.demo.benchmarks;
+
+import java_projects.demo.domain.Message;
+import java_projects.demo.repository.MessagesRepository;
+import java_projects.demo.repository.ReceiptWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A user scrolls through a conversation and sees every message of the other user, one after another: with an update
+ * for every message, like before, and with the marks collected by a ReceiptWriter and written together
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReceiptWriterBenchmark {
+    private static final int USERS = 200;
+    private static final int MESSAGES_PER_CONVERSATION = 100;
+
+    private SyntheticDatabase database;
+    private MessagesRepository messagesRepository;
+    private ReceiptWriter receiptWriter;
+    private List<Message> scrolledMessages;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new SyntheticDatabase(USERS, 1, MESSAGES_PER_CONVERSATION);
+        messagesRepository = new MessagesRepository(database.getConnectionPool());
+        // only the explicit flush of the benchmark writes the marks
+        receiptWriter = new ReceiptWriter(messagesRepository, TimeUnit.HOURS.toMillis(1), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Picks a conversation and marks its messages as not received again
+     */
+    @Setup(Level.Invocation)
+    public void pickConversation() throws SQLException {
+        int user = ThreadLocalRandom.current().nextInt(USERS);
+        String username = SyntheticDatabase.username(user);
+        String friend = SyntheticDatabase.username(database.friendOf(user, 0));
+        try (Connection connection = database.getConnectionPool().getConnection();
+             PreparedStatement statement = connection.prepareStatement("Update messages set seen = false, " +
+                     "received = false where sender = ? and receiver = ?")) {
+            statement.setString(1, friend);
+            statement.setString(2, username);
+            statement.executeUpdate();
+        }
+        List<Message> messages = messagesRepository.getLatestMessagesBetween2User(username, friend,
+                MESSAGES_PER_CONVERSATION);
+        scrolledMessages = new ArrayList<>();
+        for (int i = messages.size() - 1; i >= 0; i--)
+            if (messages.get(i).getReceiver().equals(username))
+                scrolledMessages.add(messages.get(i));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        receiptWriter.close();
+        database.close();
+    }
+
+    @Benchmark
+    public void updateEveryMessage() {
+        for (Message message : scrolledMessages)
+            messagesRepository.setMessageSeen(message.getId());
+    }
+
+    @Benchmark
+    public void receiptWriter() {
+        for (Message message : scrolledMessages)
+            receiptWriter.markSeen(message);
+        receiptWriter.flush();
+    }
+}
@@ -0,0 +1,73 @@
+package java_projects.demo.benchmarks;
+
+import java_projects.demo.domain.User;
+import java_projects.demo.repository.UsersRepository;
+import java_projects.demo.service.ServiceUsers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiceUsersBenchmark {
+    private static final int SEARCH_LIMIT = 20;
+
+    @Param({"1000", "100000"})
+    public int users;
+
+    // the length of the searched text; shorter than a trigram is searched by checking every user
+    @Param({"2", "4"})
+    public int textLength;
+
+    private SyntheticDatabase database;
+    private ServiceUsers serviceUsers;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new SyntheticDatabase(users, 0, 0);
+        serviceUsers = new ServiceUsers(new UsersRepository(database.getConnectionPool()));
+        // the first search builds the index of names
+        serviceUsers.getUsersByPartialName("a", 1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        database.close();
+    }
+
+    private String randomText() {
+        int user = ThreadLocalRandom.current().nextInt(users);
+        String name = ThreadLocalRandom.current().nextBoolean() ? SyntheticDatabase.firstName(user) :
+                SyntheticDatabase.lastName(user);
+        int start = ThreadLocalRandom.current().nextInt(name.length() - textLength + 1);
+        return name.substring(start, start + textLength);
+    }
+
+    @Benchmark
+    public List<User> getUsersByPartialName() {
+        return serviceUsers.getUsersByPartialName(randomText(), SEARCH_LIMIT);
+    }
+
+    @Benchmark
+    public List<User> getUsersByPartialNameUnlimited() {
+        return serviceUsers.getUsersByPartialName(randomText());
+    }
+}
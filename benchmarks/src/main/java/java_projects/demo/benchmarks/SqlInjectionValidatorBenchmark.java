@@ -0,0 +1,81 @@
+package java_projects.demo.benchmarks;
+
+import java_projects.demo.exceptions.SecurityFaultException;
+import java_projects.demo.validators.SqlInjectionValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SqlInjectionValidatorBenchmark {
+    // the length of a message body
+    @Param({"16", "256", "4096", "65536"})
+    public int inputLength;
+
+    private String safeInput;
+    private String unsafeInput;
+
+    @Setup
+    public void setUp() {
+        // letters of both cases and spaces that never spell a keyword, so the whole input is checked
+        Random random = new Random(42);
+        String letters = "bcfghijkmnopqrsvwxyzBCFGHIJKMNOPQRSVWXYZ ";
+        StringBuilder input = new StringBuilder(inputLength);
+        for (int i = 0; i < inputLength; i++)
+            input.append(letters.charAt(random.nextInt(letters.length())));
+        safeInput = input.toString();
+        unsafeInput = safeInput.substring(0, inputLength / 2) + "SELECT" + safeInput.substring(inputLength / 2);
+    }
+
+    @Benchmark
+    public boolean validateSafe() {
+        try {
+            SqlInjectionValidator.validate(safeInput);
+            return true;
+        } catch (SecurityFaultException e) {
+            return false;
+        }
+    }
+
+    @Benchmark
+    public boolean validateUnsafe() {
+        try {
+            SqlInjectionValidator.validate(unsafeInput);
+            return true;
+        } catch (SecurityFaultException e) {
+            return false;
+        }
+    }
+
+    @Benchmark
+    public boolean previousValidateSafe() {
+        return previousValidate(safeInput);
+    }
+
+    @Benchmark
+    public boolean previousValidateUnsafe() {
+        return previousValidate(unsafeInput);
+    }
+
+    // the validation before the keywords were searched in a single pass, kept to compare with
+    private static boolean previousValidate(String input) {
+        return !input.toLowerCase().contains("add") && !input.toLowerCase().contains("delete") &&
+                !input.toLowerCase().contains("update") && !input.toLowerCase().contains("select");
+    }
+}
@@ -0,0 +1,228 @@
+package java_projects.demo.benchmarks;
+
+import java_projects.demo.database.ConnectionPool;
+import java_projects.demo.domain.Message;
+import java_projects.demo.repository.MessagesRepository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * An H2 database in PostgreSQL mode, in memory, filled with generated users, friendships and messages. The same
+ * sizes always give the same data
+ */
+public class SyntheticDatabase implements AutoCloseable {
+    private static final String[] SYLLABLES = {"an", "ma", "ri", "ol", "ex", "dr", "ios", "ela", "ne", "ca", "to",
+            "vi", "lu", "ge", "or", "sa", "mi", "ha", "el", "ta"};
+    private static final String[] WORDS = {"the", "we", "meet", "tomorrow", "at", "station", "did", "you", "see",
+            "message", "photo", "lunch", "weekend", "thanks", "great", "idea", "call", "me", "later", "project",
+            "deadline", "movie", "tonight", "sure", "sounds", "good", "where", "are", "when", "maybe", "friday"};
+    private static final int SEED = 42;
+    private static final int INSERT_BATCH_SIZE = 1_000;
+
+    private final String url;
+    private final Connection keepAlive;
+    private final ConnectionPool connectionPool;
+    private final int userCount;
+
+    /**
+     * Creates and fills a new database
+     *
+     * @param userCount               - int - the number of users
+     * @param friendsPerUser          - int - how many friendships every user starts; some of them are requests
+     * @param messagesPerConversation - int - how many messages every user exchanges with their first friend
+     */
+    public SyntheticDatabase(int userCount, int friendsPerUser, int messagesPerConversation) {
+        this("jdbc:h2:mem:benchmark-" + UUID.randomUUID(), userCount, friendsPerUser, messagesPerConversation);
+    }
+
+    /**
+     * Creates and fills a new database at the url, in PostgreSQL mode
+     *
+     * @param url                     - String - the H2 url, without settings
+     * @param userCount               - int - the number of users
+     * @param friendsPerUser          - int - how many friendships every user starts; some of them are requests
+     * @param messagesPerConversation - int - how many messages every user exchanges with their first friend
+     */
+    public SyntheticDatabase(String url, int userCount, int friendsPerUser, int messagesPerConversation) {
+        this.url = url + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH";
+        this.userCount = userCount;
+        try {
+            // the in-memory database lives while at least one connection is open
+            this.keepAlive = DriverManager.getConnection(this.url, "sa", "");
+            createTables();
+            insertUsers();
+            insertFriendships(friendsPerUser);
+        } catch (SQLException | IOException e) {
+            throw new RuntimeException(e);
+        }
+        this.connectionPool = new ConnectionPool(this.url, "sa", "");
+        insertMessages(messagesPerConversation);
+    }
+
+    public ConnectionPool getConnectionPool() {
+        return connectionPool;
+    }
+
+    public int getUserCount() {
+        return userCount;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * Returns a text made of common words, like the body of a chat message
+     *
+     * @param seed   - long - the same seed gives the same text
+     * @param length - int - the number of characters
+     * @return String
+     */
+    public static String text(long seed, int length) {
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder(length + 16);
+        while (text.length() < length)
+            text.append(WORDS[random.nextInt(WORDS.length)]).append(random.nextInt(8) == 0 ? ". " : " ");
+        text.setLength(length);
+        return text.toString();
+    }
+
+    public static String username(int index) {
+        return "user" + index;
+    }
+
+    public static String firstName(int index) {
+        return name(index, 3);
+    }
+
+    public static String lastName(int index) {
+        return name(index * 31 + 7, 4);
+    }
+
+    private static String name(int index, int syllables) {
+        Random random = new Random(index);
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < syllables; i++)
+            name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+        return name.toString();
+    }
+
+    /**
+     * Returns the index of the friend that the user with given index adds in the database
+     *
+     * @param index  - int - the user
+     * @param number - int - which of their friendships
+     * @return int
+     */
+    public int friendOf(int index, int number) {
+        return (int) ((index + 1 + (long) number * number * 7919) % userCount);
+    }
+
+    private void createTables() throws IOException, SQLException {
+        String schema;
+        try (InputStream input = SyntheticDatabase.class.getResourceAsStream("/benchmark-schema.sql")) {
+            schema = new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        try (Statement statement = keepAlive.createStatement()) {
+            for (String sql : schema.replaceAll("(?m)^--.*$", "").split(";"))
+                if (!sql.isBlank())
+                    statement.execute(sql);
+        }
+    }
+
+    private void insertUsers() throws SQLException {
+        try (PreparedStatement statement = keepAlive.prepareStatement("Insert into users(username, password, " +
+                "firstname, lastname, email, gender) values (?, ?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < userCount; i++) {
+                statement.setString(1, username(i));
+                statement.setString(2, "password" + i);
+                statement.setString(3, firstName(i));
+                statement.setString(4, lastName(i));
+                statement.setString(5, username(i) + "@example.com");
+                statement.setString(6, i % 2 == 0 ? "female" : "male");
+                statement.addBatch();
+                if ((i + 1) % INSERT_BATCH_SIZE == 0)
+                    statement.executeBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    private void insertFriendships(int friendsPerUser) throws SQLException {
+        Random random = new Random(SEED);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        try (PreparedStatement statement = keepAlive.prepareStatement("Insert into friendships(idFriend1, " +
+                "idFriend2, friendshipMoment, isPending, isFromFirstFriend) values (?, ?, ?, ?, ?) " +
+                "on conflict do nothing")) {
+            int pending = 0;
+            for (int i = 0; i < userCount; i++) {
+                for (int number = 0; number < friendsPerUser; number++) {
+                    int friend = friendOf(i, number);
+                    if (friend == i)
+                        continue;
+                    String username1 = username(i);
+                    String username2 = username(friend);
+                    boolean swap = username1.compareTo(username2) > 0;
+                    statement.setString(1, swap ? username2 : username1);
+                    statement.setString(2, swap ? username1 : username2);
+                    statement.setObject(3, start.plusSeconds(random.nextInt(365 * 86_400)));
+                    // every fifth friendship is still a request, sent by user i
+                    statement.setBoolean(4, number % 5 == 4);
+                    statement.setBoolean(5, !swap);
+                    statement.addBatch();
+                    if (++pending == INSERT_BATCH_SIZE) {
+                        statement.executeBatch();
+                        pending = 0;
+                    }
+                }
+            }
+            statement.executeBatch();
+        }
+    }
+
+    private void insertMessages(int messagesPerConversation) {
+        if (messagesPerConversation <= 0)
+            return;
+        MessagesRepository messagesRepository = new MessagesRepository(connectionPool);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 8, 0);
+        List<Message> messages = new ArrayList<>();
+        long id = 1;
+        for (int i = 0; i < userCount; i++) {
+            String user = username(i);
+            String friend = username(friendOf(i, 0));
+            for (int number = 0; number < messagesPerConversation; number++) {
+                boolean fromUser = number % 2 == 0;
+                Message message = new Message(id, fromUser ? user : friend, fromUser ? friend : user,
+                        "Message " + number + " of the conversation of " + user);
+                message.setMessageTime(start.plusSeconds(id));
+                messages.add(message);
+                id++;
+            }
+            if (messages.size() >= INSERT_BATCH_SIZE) {
+                messagesRepository.addAll(messages);
+                messages.clear();
+            }
+        }
+        if (!messages.isEmpty())
+            messagesRepository.addAll(messages);
+    }
+
+    @Override
+    public void close() throws SQLException {
+        connectionPool.close();
+        keepAlive.close();
+    }
+}
@@ -0,0 +1,77 @@
+package java_projects.demo.benchmarks;
+
+import java_projects.demo.domain.User;
+import java_projects.demo.repository.CachedUsersRepository;
+import java_projects.demo.repository.UsersRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UsersRepositoryBenchmark {
+    @Param({"1000", "100000"})
+    public int users;
+
+    private SyntheticDatabase database;
+    private UsersRepository usersRepository;
+    private CachedUsersRepository cachedUsersRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new SyntheticDatabase(users, 0, 0);
+        usersRepository = new UsersRepository(database.getConnectionPool());
+        cachedUsersRepository = new CachedUsersRepository(usersRepository);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        database.close();
+    }
+
+    private String randomUsername() {
+        return SyntheticDatabase.username(ThreadLocalRandom.current().nextInt(users));
+    }
+
+    @Benchmark
+    public User findById() {
+        return usersRepository.findById(randomUsername());
+    }
+
+    @Benchmark
+    public User findByIdCached() {
+        return cachedUsersRepository.findById(randomUsername());
+    }
+
+    @Benchmark
+    public Object getUserProfileById() {
+        return usersRepository.getUserProfileById(randomUsername());
+    }
+
+    @Benchmark
+    public int size() {
+        return usersRepository.size();
+    }
+
+    @Benchmark
+    public void updateDescription() {
+        usersRepository.updateDescription("Description " + ThreadLocalRandom.current().nextInt(), randomUsername());
+    }
+}
@@ -0,0 +1,57 @@
+-- The tables of the application, for H2 in PostgreSQL mode. Moments keep microseconds like the PostgreSQL timestamp type.
+create table users
+(
+    username           varchar primary key,
+    password           varchar,
+    firstname          varchar,
+    lastname           varchar,
+    email              varchar,
+    gender             varchar,
+    description        varchar,
+    profilePicturePath varchar
+);
+
+create table friendships
+(
+    idFriend1         varchar,
+    idFriend2         varchar,
+    friendshipMoment  timestamp(6) not null,
+    isPending         boolean,
+    isFromFirstFriend boolean,
+    primary key (idFriend1, idFriend2)
+);
+create index friendships_friend2_idx on friendships (idFriend2, idFriend1);
+
+create table messages
+(
+    idMessage     bigint primary key,
+    sender        varchar,
+    receiver      varchar,
+    messageMoment timestamp(6) not null,
+    seen          boolean,
+    received      boolean,
+    body          bytea    not null,
+    bodyCodec     smallint not null default 0,
+    preview       varchar
+);
+create index messages_sender_receiver_idx on messages (sender, receiver, messageMoment);
+-- H2 can't index least(sender, receiver) and greatest(sender, receiver) like the migrations do, so the paged
+-- conversation queries would scan the table here and are not benchmarked
+
+create table conversations
+(
+    user1             varchar      not null,
+    user2             varchar      not null,
+    lastMessageId     bigint       not null,
+    lastMessageMoment timestamp(6) not null,
+    unreadByUser1     int          not null default 0,
+    unreadByUser2     int          not null default 0,
+    primary key (user1, user2)
+);
+create index conversations_user2_idx on conversations (user2);
+
+create table id_counters
+(
+    name      varchar primary key,
+    nextValue bigint not null
+);
@@ -0,0 +1,81 @@
+package java_projects.demo.async;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs blocking operations, like the queries of the repositories, on virtual threads. Every operation gets its own
+ * thread, but at most a limited number of them run at the same time; the others wait without holding a platform
+ * thread
+ */
+public class AsyncExecutor implements AutoCloseable {
+    public static final int DEFAULT_CONCURRENCY = 16;
+
+    private final ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore permits;
+
+    /**
+     * Constructor for an executor that runs the default number of operations at the same time
+     */
+    public AsyncExecutor() {
+        this(DEFAULT_CONCURRENCY);
+    }
+
+    /**
+     * Constructor for an executor of blocking operations
+     *
+     * @param concurrency - int - how many operations run at the same time; must be positive. There is no use in
+     *                    running more operations that query the database than the pool has connections
+     */
+    public AsyncExecutor(int concurrency) {
+        if (concurrency <= 0)
+            throw new IllegalArgumentException("The concurrency must be positive!");
+        this.permits = new Semaphore(concurrency, true);
+    }
+
+    /**
+     * Runs the operation on a virtual thread
+     *
+     * @param operation - Callable - the blocking operation
+     * @return CompletableFuture - completed with the result of the operation or with the exception it threw
+     */
+    public <T> CompletableFuture<T> supply(Callable<T> operation) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        executorService.execute(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                future.completeExceptionally(e);
+                return;
+            }
+            try {
+                future.complete(operation.call());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            } finally {
+                permits.release();
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Returns how many operations wait for their turn
+     *
+     * @return int
+     */
+    public int getWaitingOperations() {
+        return permits.getQueueLength();
+    }
+
+    /**
+     * Stops accepting operations and waits for the running ones to finish
+     */
+    @Override
+    public void close() {
+        executorService.close();
+    }
+}
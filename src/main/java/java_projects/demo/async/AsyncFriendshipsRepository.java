@@ -0,0 +1,48 @@
+package java_projects.demo.async;
+
+import java_projects.demo.domain.Friendship;
+import java_projects.demo.domain.FriendshipKey;
+import java_projects.demo.repository.FriendshipsRepository;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The operations of FriendshipsRepository that don't block the caller, including the pages of friends and requests
+ */
+public class AsyncFriendshipsRepository extends AsyncRepository<FriendshipKey, Friendship> {
+    private final FriendshipsRepository friendshipsRepository;
+    private final AsyncExecutor asyncExecutor;
+
+    /**
+     * Constructor for the asynchronous operations of the friendships repository
+     *
+     * @param friendshipsRepository - FriendshipsRepository - the repository that runs the operations
+     * @param asyncExecutor         - AsyncExecutor - where the operations run
+     */
+    public AsyncFriendshipsRepository(FriendshipsRepository friendshipsRepository, AsyncExecutor asyncExecutor) {
+        super(friendshipsRepository, asyncExecutor);
+        this.friendshipsRepository = friendshipsRepository;
+        this.asyncExecutor = asyncExecutor;
+    }
+
+    public FriendshipsRepository getFriendshipsRepository() {
+        return friendshipsRepository;
+    }
+
+    public CompletableFuture<List<Friendship>> findFriendsOf(String username, String afterUsername, int pageSize) {
+        return asyncExecutor.supply(() -> friendshipsRepository.findFriendsOf(username, afterUsername, pageSize));
+    }
+
+    public CompletableFuture<List<Friendship>> findIncomingRequests(String username, String afterUsername,
+                                                                    int pageSize) {
+        return asyncExecutor.supply(() ->
+                friendshipsRepository.findIncomingRequests(username, afterUsername, pageSize));
+    }
+
+    public CompletableFuture<List<Friendship>> findOutgoingRequests(String username, String afterUsername,
+                                                                    int pageSize) {
+        return asyncExecutor.supply(() ->
+                friendshipsRepository.findOutgoingRequests(username, afterUsername, pageSize));
+    }
+}
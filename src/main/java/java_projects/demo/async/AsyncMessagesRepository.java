@@ -0,0 +1,81 @@
+package java_projects.demo.async;
+
+import java_projects.demo.domain.ConversationSummary;
+import java_projects.demo.domain.Message;
+import java_projects.demo.repository.BulkInsertReport;
+import java_projects.demo.repository.MessageCursor;
+import java_projects.demo.repository.MessagesRepository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The operations of MessagesRepository that don't block the caller, including the queries of the conversations
+ */
+public class AsyncMessagesRepository extends AsyncRepository<Long, Message> {
+    private final MessagesRepository messagesRepository;
+    private final AsyncExecutor asyncExecutor;
+
+    /**
+     * Constructor for the asynchronous operations of the messages repository
+     *
+     * @param messagesRepository - MessagesRepository - the repository that runs the operations
+     * @param asyncExecutor      - AsyncExecutor - where the operations run
+     */
+    public AsyncMessagesRepository(MessagesRepository messagesRepository, AsyncExecutor asyncExecutor) {
+        super(messagesRepository, asyncExecutor);
+        this.messagesRepository = messagesRepository;
+        this.asyncExecutor = asyncExecutor;
+    }
+
+    public MessagesRepository getMessagesRepository() {
+        return messagesRepository;
+    }
+
+    public CompletableFuture<String> getMessageContentById(Long messageId) {
+        return asyncExecutor.supply(() -> messagesRepository.getMessageContentById(messageId));
+    }
+
+    public CompletableFuture<BulkInsertReport> addAll(Collection<Message> messages) {
+        return asyncExecutor.supply(() -> messagesRepository.addAll(messages));
+    }
+
+    public CompletableFuture<Iterable<Message>> getLastMessageFromEveryConversationOfUser(String username) {
+        return asyncExecutor.supply(() -> messagesRepository.getLastMessageFromEveryConversationOfUser(username));
+    }
+
+    public CompletableFuture<List<ConversationSummary>> getConversationSummariesOfUser(String username) {
+        return asyncExecutor.supply(() -> messagesRepository.getConversationSummariesOfUser(username));
+    }
+
+    public CompletableFuture<Iterable<Message>> getMessagesBetween2User(String username1, String username2) {
+        return asyncExecutor.supply(() -> messagesRepository.getMessagesBetween2User(username1, username2));
+    }
+
+    public CompletableFuture<List<Message>> getLatestMessagesBetween2User(String username1, String username2,
+                                                                           int pageSize) {
+        return asyncExecutor.supply(() ->
+                messagesRepository.getLatestMessagesBetween2User(username1, username2, pageSize));
+    }
+
+    public CompletableFuture<List<Message>> getOlderMessagesBetween2User(String username1, String username2,
+                                                                          MessageCursor cursor, int pageSize) {
+        return asyncExecutor.supply(() ->
+                messagesRepository.getOlderMessagesBetween2User(username1, username2, cursor, pageSize));
+    }
+
+    public CompletableFuture<Void> setMessagesReceived(Message message) {
+        return asyncExecutor.supply(() -> {
+            messagesRepository.setMessagesReceived(message);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> setMessageSeen(Long idMessage) {
+        return asyncExecutor.supply(() -> {
+            messagesRepository.setMessageSeen(idMessage);
+            return null;
+        });
+    }
+}
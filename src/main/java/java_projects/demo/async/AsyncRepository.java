@@ -0,0 +1,64 @@
+package java_projects.demo.async;
+
+import java_projects.demo.domain.Entity;
+import java_projects.demo.repository.IRepository;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The operations of a repository that don't block the caller. Every operation runs on the executor and its result
+ * is given through a CompletableFuture
+ */
+public class AsyncRepository<ID, E extends Entity<ID>> {
+    private final IRepository<ID, E> repository;
+    private final AsyncExecutor asyncExecutor;
+
+    /**
+     * Constructor for the asynchronous operations of a repository
+     *
+     * @param repository    - IRepository - the repository that runs the operations
+     * @param asyncExecutor - AsyncExecutor - where the operations run
+     */
+    public AsyncRepository(IRepository<ID, E> repository, AsyncExecutor asyncExecutor) {
+        this.repository = repository;
+        this.asyncExecutor = asyncExecutor;
+    }
+
+    public IRepository<ID, E> getRepository() {
+        return repository;
+    }
+
+    public CompletableFuture<E> findById(ID id) {
+        return asyncExecutor.supply(() -> repository.findById(id));
+    }
+
+    public CompletableFuture<Iterable<E>> findAll() {
+        return asyncExecutor.supply(repository::findAll);
+    }
+
+    public CompletableFuture<E> add(E entity) {
+        return asyncExecutor.supply(() -> repository.add(entity));
+    }
+
+    public CompletableFuture<Void> remove(ID id) {
+        return asyncExecutor.supply(() -> {
+            repository.remove(id);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> updateEntity(ID id, E entity) {
+        return asyncExecutor.supply(() -> {
+            repository.updateEntity(id, entity);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Boolean> availableId(ID id) {
+        return asyncExecutor.supply(() -> repository.availableId(id));
+    }
+
+    public CompletableFuture<Integer> size() {
+        return asyncExecutor.supply(repository::size);
+    }
+}
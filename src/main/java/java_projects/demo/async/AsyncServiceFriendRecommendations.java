@@ -0,0 +1,44 @@
+package java_projects.demo.async;
+
+import java_projects.demo.domain.FriendRecommendation;
+import java_projects.demo.service.ServiceFriendRecommendations;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The operations of ServiceFriendRecommendations that don't block the caller
+ */
+public class AsyncServiceFriendRecommendations {
+    private final ServiceFriendRecommendations serviceFriendRecommendations;
+    private final AsyncExecutor asyncExecutor;
+
+    /**
+     * Constructor for the asynchronous operations of the recommendations service
+     *
+     * @param serviceFriendRecommendations - ServiceFriendRecommendations - the service that runs the operations
+     * @param asyncExecutor                - AsyncExecutor - where the operations run
+     */
+    public AsyncServiceFriendRecommendations(ServiceFriendRecommendations serviceFriendRecommendations,
+                                             AsyncExecutor asyncExecutor) {
+        this.serviceFriendRecommendations = serviceFriendRecommendations;
+        this.asyncExecutor = asyncExecutor;
+    }
+
+    public CompletableFuture<List<FriendRecommendation>> getRecommendations(String username) {
+        return asyncExecutor.supply(() -> serviceFriendRecommendations.getRecommendations(username));
+    }
+
+    /**
+     * Computes the recommendations of every user. The virtual thread only waits for the fork/join pool, which does
+     * the work on all cores
+     *
+     * @return CompletableFuture < Void >
+     */
+    public CompletableFuture<Void> precomputeAll() {
+        return asyncExecutor.supply(() -> {
+            serviceFriendRecommendations.precomputeAll();
+            return null;
+        });
+    }
+}
@@ -0,0 +1,74 @@
+package java_projects.demo.async;
+
+import java_projects.demo.domain.User;
+import java_projects.demo.domain.UserProfile;
+import java_projects.demo.service.ServiceUsers;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The operations of ServiceUsers that don't block the caller. The exceptions of the service, like an invalid user,
+ * complete the futures exceptionally
+ */
+public class AsyncServiceUsers {
+    private final ServiceUsers serviceUsers;
+    private final AsyncExecutor asyncExecutor;
+
+    /**
+     * Constructor for the asynchronous operations of the users service
+     *
+     * @param serviceUsers  - ServiceUsers - the service that runs the operations
+     * @param asyncExecutor - AsyncExecutor - where the operations run
+     */
+    public AsyncServiceUsers(ServiceUsers serviceUsers, AsyncExecutor asyncExecutor) {
+        this.serviceUsers = serviceUsers;
+        this.asyncExecutor = asyncExecutor;
+    }
+
+    public ServiceUsers getServiceUsers() {
+        return serviceUsers;
+    }
+
+    public CompletableFuture<User> getUserByUsername(String username) {
+        return asyncExecutor.supply(() -> serviceUsers.getUserByUsername(username));
+    }
+
+    public CompletableFuture<UserProfile> getUserProfileByUsername(String username) {
+        return asyncExecutor.supply(() -> serviceUsers.getUserProfileByUsername(username));
+    }
+
+    public CompletableFuture<Void> addUser(String username, String password, String firstName, String lastName,
+                                           String email, String gender) {
+        return asyncExecutor.supply(() -> {
+            serviceUsers.addUser(username, password, firstName, lastName, email, gender);
+            return null;
+        });
+    }
+
+    public CompletableFuture<ArrayList<User>> getAllUsers() {
+        return asyncExecutor.supply(serviceUsers::getAllUsers);
+    }
+
+    public CompletableFuture<ArrayList<User>> getUsersByPartialName(String name) {
+        return asyncExecutor.supply(() -> serviceUsers.getUsersByPartialName(name));
+    }
+
+    public CompletableFuture<ArrayList<User>> getUsersByPartialName(String name, int limit) {
+        return asyncExecutor.supply(() -> serviceUsers.getUsersByPartialName(name, limit));
+    }
+
+    public CompletableFuture<Void> updateDescription(String newDescription, String username) {
+        return asyncExecutor.supply(() -> {
+            serviceUsers.updateDescription(newDescription, username);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> changeProfilePicturePath(String newPath, String username) {
+        return asyncExecutor.supply(() -> {
+            serviceUsers.changeProfilePicturePath(newPath, username);
+            return null;
+        });
+    }
+}
@@ -0,0 +1,49 @@
+package java_projects.demo.async;
+
+import java_projects.demo.domain.User;
+import java_projects.demo.domain.UserProfile;
+import java_projects.demo.repository.IUsersRepository;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The operations of a users repository that don't block the caller, including the profiles of the users
+ */
+public class AsyncUsersRepository extends AsyncRepository<String, User> {
+    private final IUsersRepository usersRepository;
+    private final AsyncExecutor asyncExecutor;
+
+    /**
+     * Constructor for the asynchronous operations of a users repository
+     *
+     * @param usersRepository - IUsersRepository - the repository that runs the operations
+     * @param asyncExecutor   - AsyncExecutor - where the operations run
+     */
+    public AsyncUsersRepository(IUsersRepository usersRepository, AsyncExecutor asyncExecutor) {
+        super(usersRepository, asyncExecutor);
+        this.usersRepository = usersRepository;
+        this.asyncExecutor = asyncExecutor;
+    }
+
+    public IUsersRepository getUsersRepository() {
+        return usersRepository;
+    }
+
+    public CompletableFuture<UserProfile> getUserProfileById(String username) {
+        return asyncExecutor.supply(() -> usersRepository.getUserProfileById(username));
+    }
+
+    public CompletableFuture<Void> updateDescription(String newDescription, String username) {
+        return asyncExecutor.supply(() -> {
+            usersRepository.updateDescription(newDescription, username);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> changeProfilePicturePath(String newPath, String username) {
+        return asyncExecutor.supply(() -> {
+            usersRepository.changeProfilePicturePath(newPath, username);
+            return null;
+        });
+    }
+}
@@ -0,0 +1,25 @@
+package java_projects.demo.async;
+
+import javafx.application.Platform;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Runs tasks on the JavaFX application thread. The results of the asynchronous operations are given to the user
+ * interface with it, for example:
+ * future.thenAcceptAsync(user -> label.setText(user.getFirstName()), FxExecutor.INSTANCE)
+ */
+public final class FxExecutor implements Executor {
+    public static final FxExecutor INSTANCE = new FxExecutor();
+
+    private FxExecutor() {
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (Platform.isFxApplicationThread())
+            task.run();
+        else
+            Platform.runLater(task);
+    }
+}
@@ -0,0 +1,108 @@
+package java_projects.demo.database;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Generates unique ids from a counter row of the id_counters table. The counter is advanced by a whole block of ids
+ * in one short transaction and the ids of the block are handed out from memory, so most calls don't touch the
+ * database and concurrent callers never get the same id. Ids of a block that is not used up before the application
+ * stops are skipped, never reused
+ */
+public class BlockIdAllocator {
+    public static final int DEFAULT_BLOCK_SIZE = 100;
+
+    private static final String ADVANCE = "Update id_counters set nextValue = nextValue + ? where name = ?";
+    private static final String FIND_NEXT_VALUE = "Select nextValue from id_counters where name = ?";
+    private static final String INSERT_COUNTER = "Insert into id_counters(name, nextValue) values (?, ?) " +
+            "on conflict do nothing";
+
+    /**
+     * The ids [next, end) that were reserved in the database and not handed out yet
+     */
+    private static final class Block {
+        private final AtomicLong next;
+        private final long end;
+
+        private Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+
+    private final QueryRunner queryRunner;
+    private final String counterName;
+    private final String initialValueQuery;
+    private final int blockSize;
+    private final AtomicReference<Block> currentBlock = new AtomicReference<>(new Block(0, 0));
+    // a lock instead of a monitor, so the virtual threads waiting for the refill don't pin their carriers while
+    // the block is reserved in the database
+    private final ReentrantLock refillLock = new ReentrantLock();
+
+    /**
+     * Constructor for an allocator of ids
+     *
+     * @param queryRunner       - QueryRunner - runs the statements on the counter
+     * @param counterName       - String - the name of the counter row
+     * @param initialValueQuery - String - a query that returns the first id, used only if the counter row is missing
+     * @param blockSize         - int - how many ids are reserved at once; must be positive
+     */
+    public BlockIdAllocator(QueryRunner queryRunner, String counterName, String initialValueQuery, int blockSize) {
+        if (blockSize <= 0)
+            throw new IllegalArgumentException("The size of a block of ids must be positive!");
+        this.queryRunner = queryRunner;
+        this.counterName = counterName;
+        this.initialValueQuery = initialValueQuery;
+        this.blockSize = blockSize;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Returns an id that was never returned before by any allocator of the same counter
+     *
+     * @return long
+     */
+    public long nextId() {
+        while (true) {
+            Block block = currentBlock.get();
+            long id = block.next.getAndIncrement();
+            if (id < block.end)
+                return id;
+            refill(block);
+        }
+    }
+
+    private void refill(Block exhausted) {
+        refillLock.lock();
+        try {
+            // another thread may have reserved a new block while we were waiting for the lock
+            if (currentBlock.get() != exhausted)
+                return;
+            long end = reserveBlock();
+            currentBlock.set(new Block(end - blockSize, end));
+        } finally {
+            refillLock.unlock();
+        }
+    }
+
+    /**
+     * Advances the counter by one block. The row stays locked until the transaction commits, so every allocator
+     * reads the value written by its own update
+     *
+     * @return long - the end of the reserved block, exclusive
+     */
+    private long reserveBlock() {
+        return queryRunner.inTransaction(transaction -> {
+            if (transaction.update(ADVANCE, blockSize, counterName) == 0) {
+                Long initialValue = transaction.queryForObject(initialValueQuery, resultSet -> resultSet.getLong(1));
+                transaction.update(INSERT_COUNTER, counterName, initialValue == null ? 1L : initialValue);
+                transaction.update(ADVANCE, blockSize, counterName);
+            }
+            return transaction.queryForObject(FIND_NEXT_VALUE, resultSet -> resultSet.getLong(1), counterName);
+        });
+    }
+}
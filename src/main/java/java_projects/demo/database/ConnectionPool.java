@@ -0,0 +1,383 @@
+package java_projects.demo.database;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTimeoutException;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+public class ConnectionPool implements DataSource, AutoCloseable {
+    public static final int DEFAULT_MAXIMUM_SIZE = 10;
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    public static final long DEFAULT_MAXIMUM_WAIT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    public static final int DEFAULT_STATEMENT_CACHE_SIZE = 64;
+    public static final long ROW_COUNT_RECONCILE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    private static final long VALIDATION_BYPASS_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final int maximumSize;
+    private final long idleTimeoutMillis;
+    private final long maximumWaitMillis;
+    private final int statementCacheSize;
+
+    private final Semaphore permits;
+    private final Deque<PooledConnection> idleConnections = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final ScheduledExecutorService maintenanceScheduler;
+    private final Map<String, RowCounter> rowCounters = new ConcurrentHashMap<>();
+    private volatile boolean closed = false;
+
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maximumWaitNanos = new AtomicLong();
+    private final LongAdder createdConnections = new LongAdder();
+    private final LongAdder evictedConnections = new LongAdder();
+    private final LongAdder failedValidations = new LongAdder();
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
+
+    /**
+     * Constructor for a pool with the default size and timeouts
+     *
+     * @param url      - String - the url of the database
+     * @param username - String - the username for the database login
+     * @param password - String - the password for the database login
+     */
+    public ConnectionPool(String url, String username, String password) {
+        this(url, username, password, DEFAULT_MAXIMUM_SIZE, DEFAULT_IDLE_TIMEOUT_MILLIS, DEFAULT_MAXIMUM_WAIT_MILLIS,
+                DEFAULT_STATEMENT_CACHE_SIZE);
+    }
+
+    /**
+     * Constructor for a bounded pool of connections to the database
+     *
+     * @param url                - String - the url of the database
+     * @param username           - String - the username for the database login
+     * @param password           - String - the password for the database login
+     * @param maximumSize        - int - the maximum number of connections opened at the same time
+     * @param idleTimeoutMillis  - long - how long a connection may stay unused before it is closed
+     * @param maximumWaitMillis  - long - how long a caller waits for a free connection before failing
+     * @param statementCacheSize - int - how many prepared statements are kept open for every connection
+     */
+    public ConnectionPool(String url, String username, String password, int maximumSize, long idleTimeoutMillis,
+                          long maximumWaitMillis, int statementCacheSize) {
+        if (maximumSize <= 0)
+            throw new IllegalArgumentException("The size of the pool must be positive!");
+        if (idleTimeoutMillis <= 0 || maximumWaitMillis < 0)
+            throw new IllegalArgumentException("Invalid timeouts for the pool!");
+        if (statementCacheSize <= 0)
+            throw new IllegalArgumentException("The size of the statement cache must be positive!");
+
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.maximumSize = maximumSize;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maximumWaitMillis = maximumWaitMillis;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maximumSize, true);
+
+        this.maintenanceScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long evictionPeriod = Math.max(1000, idleTimeoutMillis / 2);
+        this.maintenanceScheduler.scheduleWithFixedDelay(this::evictIdleConnections, evictionPeriod, evictionPeriod,
+                TimeUnit.MILLISECONDS);
+        this.maintenanceScheduler.scheduleWithFixedDelay(this::reconcileRowCounters, ROW_COUNT_RECONCILE_MILLIS,
+                ROW_COUNT_RECONCILE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the row counter for the count query, shared by every repository of this pool that counts the same
+     * table
+     *
+     * @param countQuery - String - a query that returns the number of rows of a table
+     * @return RowCounter
+     */
+    public RowCounter getRowCounter(String countQuery) {
+        return rowCounters.computeIfAbsent(countQuery, query -> new RowCounter(new QueryRunner(this), query));
+    }
+
+    private void reconcileRowCounters() {
+        for (RowCounter rowCounter : rowCounters.values()) {
+            try {
+                rowCounter.reconcile();
+            } catch (RuntimeException e) {
+                // the database is unreachable; the next reconciliation tries again
+            }
+        }
+    }
+
+    /**
+     * Borrows a connection from the pool. Closing the returned connection gives it back to the pool
+     *
+     * @return Connection
+     * @throws SQLException - if no connection is available in time or the database can't be reached
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        return borrow().lease();
+    }
+
+    /**
+     * Borrows a pooled connection. It must be given back with release
+     *
+     * @return PooledConnection
+     * @throws SQLException - if no connection is available in time or the database can't be reached
+     */
+    PooledConnection borrow() throws SQLException {
+        if (closed)
+            throw new SQLException("The connection pool is closed!");
+
+        long waitStart = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(maximumWaitMillis, TimeUnit.MILLISECONDS))
+                throw new SQLTimeoutException("No connection available after " + maximumWaitMillis + " ms!");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection!", e);
+        }
+        recordWait(System.nanoTime() - waitStart);
+
+        try {
+            PooledConnection pooledConnection = pollValidIdleConnection();
+            if (pooledConnection == null)
+                pooledConnection = openConnection();
+            return pooledConnection;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Takes the most recently used idle connection that is still valid
+     *
+     * @return PooledConnection - or null if there is no idle connection
+     */
+    private PooledConnection pollValidIdleConnection() {
+        PooledConnection pooledConnection;
+        while ((pooledConnection = idleConnections.pollFirst()) != null) {
+            if (isValid(pooledConnection))
+                return pooledConnection;
+            failedValidations.increment();
+            discard(pooledConnection);
+        }
+        return null;
+    }
+
+    /**
+     * Checks if a connection can still be used. Connections used very recently are not checked again
+     *
+     * @param pooledConnection - PooledConnection
+     * @return boolean
+     */
+    private boolean isValid(PooledConnection pooledConnection) {
+        if (System.nanoTime() - pooledConnection.getLastUsedNanos() < VALIDATION_BYPASS_NANOS)
+            return true;
+        try {
+            return pooledConnection.getPhysicalConnection().isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private PooledConnection openConnection() throws SQLException {
+        Connection connection = DriverManager.getConnection(url, username, password);
+        openConnections.incrementAndGet();
+        createdConnections.increment();
+        return new PooledConnection(this, connection, statementCacheSize);
+    }
+
+    private void discard(PooledConnection pooledConnection) {
+        openConnections.decrementAndGet();
+        pooledConnection.closePhysicalConnection();
+    }
+
+    /**
+     * Gives a connection back to the pool
+     *
+     * @param pooledConnection - PooledConnection - the connection we give back
+     */
+    void release(PooledConnection pooledConnection) {
+        try {
+            Connection connection = pooledConnection.getPhysicalConnection();
+            if (closed || connection.isClosed()) {
+                discard(pooledConnection);
+                return;
+            }
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            pooledConnection.touch();
+            idleConnections.offerFirst(pooledConnection);
+        } catch (SQLException e) {
+            discard(pooledConnection);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Closes the connections that were not used for longer than the idle timeout
+     */
+    private void evictIdleConnections() {
+        long deadline = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        for (PooledConnection pooledConnection : idleConnections) {
+            if (pooledConnection.getLastUsedNanos() < deadline && idleConnections.remove(pooledConnection)) {
+                evictedConnections.increment();
+                discard(pooledConnection);
+            }
+        }
+    }
+
+    void recordStatementCacheHit() {
+        statementCacheHits.increment();
+    }
+
+    void recordStatementCacheMiss() {
+        statementCacheMisses.increment();
+    }
+
+    private void recordWait(long waitNanos) {
+        borrowCount.increment();
+        totalWaitNanos.add(waitNanos);
+        maximumWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    /**
+     * Closes the pool and every idle connection. Borrowed connections are closed when they are given back
+     */
+    @Override
+    public void close() {
+        closed = true;
+        maintenanceScheduler.shutdownNow();
+        PooledConnection pooledConnection;
+        while ((pooledConnection = idleConnections.pollFirst()) != null)
+            discard(pooledConnection);
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public int getOpenConnections() {
+        return openConnections.get();
+    }
+
+    public int getIdleConnections() {
+        return idleConnections.size();
+    }
+
+    public int getActiveConnections() {
+        return maximumSize - permits.availablePermits();
+    }
+
+    public long getBorrowCount() {
+        return borrowCount.sum();
+    }
+
+    /**
+     * Returns the average time a caller waited for a connection
+     *
+     * @return double - milliseconds
+     */
+    public double getAverageWaitMillis() {
+        long borrows = borrowCount.sum();
+        if (borrows == 0)
+            return 0;
+        return totalWaitNanos.sum() / (double) borrows / 1_000_000;
+    }
+
+    /**
+     * Returns the longest time a caller waited for a connection
+     *
+     * @return double - milliseconds
+     */
+    public double getMaximumWaitMillis() {
+        return maximumWaitNanos.get() / 1_000_000.0;
+    }
+
+    public long getCreatedConnections() {
+        return createdConnections.sum();
+    }
+
+    public long getEvictedConnections() {
+        return evictedConnections.sum();
+    }
+
+    public long getFailedValidations() {
+        return failedValidations.sum();
+    }
+
+    public long getStatementCacheHits() {
+        return statementCacheHits.sum();
+    }
+
+    public long getStatementCacheMisses() {
+        return statementCacheMisses.sum();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("The pool only opens connections with its own credentials!");
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return DriverManager.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+        DriverManager.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+        DriverManager.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return DriverManager.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this))
+            return iface.cast(this);
+        throw new SQLException("The pool is not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
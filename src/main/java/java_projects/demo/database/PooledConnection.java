@@ -0,0 +1,160 @@
+package java_projects.demo.database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+class PooledConnection {
+    private final ConnectionPool pool;
+    private final Connection physicalConnection;
+    private final LinkedHashMap<String, PreparedStatement> statementCache;
+    private volatile long lastUsedNanos;
+
+    /**
+     * Wraps a physical connection that belongs to the pool
+     *
+     * @param pool               - ConnectionPool - the pool that owns the connection
+     * @param physicalConnection - Connection - the connection opened by the driver
+     * @param statementCacheSize - int - how many prepared statements are kept open on this connection
+     */
+    PooledConnection(ConnectionPool pool, Connection physicalConnection, int statementCacheSize) {
+        this.pool = pool;
+        this.physicalConnection = physicalConnection;
+        this.lastUsedNanos = System.nanoTime();
+        this.statementCache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() <= statementCacheSize)
+                    return false;
+                closeStatement(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Returns a prepared statement for the sql text, reusing the one prepared before on this connection.
+     * The statement must not be closed by the caller. Only the thread that borrowed the connection may call it
+     *
+     * @param sql - String - the sql text with ? for every parameter
+     * @return PreparedStatement
+     * @throws SQLException - if the statement can't be prepared
+     */
+    PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement statement = statementCache.get(sql);
+        if (statement != null && !statement.isClosed()) {
+            pool.recordStatementCacheHit();
+            statement.clearParameters();
+            return statement;
+        }
+
+        pool.recordStatementCacheMiss();
+        statement = physicalConnection.prepareStatement(sql);
+        statementCache.put(sql, statement);
+        return statement;
+    }
+
+    /**
+     * Closes and forgets the cached statement for the sql text, for example after it failed
+     *
+     * @param sql - String
+     */
+    void evictStatement(String sql) {
+        PreparedStatement statement = statementCache.remove(sql);
+        if (statement != null)
+            closeStatement(statement);
+    }
+
+    private static void closeStatement(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    /**
+     * Returns the connection opened by the driver
+     *
+     * @return Connection
+     */
+    Connection getPhysicalConnection() {
+        return physicalConnection;
+    }
+
+    /**
+     * Returns the moment (System.nanoTime) when the connection was last given back to the pool
+     *
+     * @return long
+     */
+    long getLastUsedNanos() {
+        return lastUsedNanos;
+    }
+
+    /**
+     * Marks the connection as used right now
+     */
+    void touch() {
+        this.lastUsedNanos = System.nanoTime();
+    }
+
+    /**
+     * Creates a logical connection handed to the caller. Closing it gives the physical connection back to the pool
+     *
+     * @return Connection
+     */
+    Connection lease() {
+        return (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new LeaseHandler());
+    }
+
+    /**
+     * Closes the physical connection, ignoring the errors
+     */
+    void closePhysicalConnection() {
+        try {
+            physicalConnection.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    private class LeaseHandler implements InvocationHandler {
+        private boolean returned = false;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        pool.release(PooledConnection.this);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || physicalConnection.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + physicalConnection + "]";
+                default:
+                    break;
+            }
+
+            if (returned)
+                throw new SQLException("The connection was already given back to the pool!");
+
+            try {
+                return method.invoke(physicalConnection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
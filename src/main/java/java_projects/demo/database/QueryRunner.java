@@ -0,0 +1,216 @@
+package java_projects.demo.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class QueryRunner {
+    private final ConnectionPool connectionPool;
+    private final PooledConnection transactionConnection;
+
+    /**
+     * Constructor for a query runner that borrows a connection from the pool for every statement
+     *
+     * @param connectionPool - ConnectionPool - the pool the connections are borrowed from
+     */
+    public QueryRunner(ConnectionPool connectionPool) {
+        this(connectionPool, null);
+    }
+
+    private QueryRunner(ConnectionPool connectionPool, PooledConnection transactionConnection) {
+        this.connectionPool = connectionPool;
+        this.transactionConnection = transactionConnection;
+    }
+
+    public ConnectionPool getConnectionPool() {
+        return connectionPool;
+    }
+
+    @FunctionalInterface
+    private interface StatementCallback<T> {
+        T execute(PreparedStatement statement) throws SQLException;
+    }
+
+    /**
+     * Runs the callback on the cached statement for sql, with the parameters bound in order
+     *
+     * @param sql        - String - fixed sql text with ? for every parameter
+     * @param callback   - what we do with the statement
+     * @param parameters - the values of the parameters
+     * @return T - the result of the callback
+     */
+    private <T> T execute(String sql, StatementCallback<T> callback, Object... parameters) {
+        PooledConnection pooledConnection = transactionConnection;
+        boolean borrowed = (pooledConnection == null);
+        try {
+            if (borrowed)
+                pooledConnection = connectionPool.borrow();
+            PreparedStatement statement = pooledConnection.prepare(sql);
+            try {
+                for (int i = 0; i < parameters.length; i++)
+                    statement.setObject(i + 1, parameters[i]);
+                return callback.execute(statement);
+            } catch (SQLException e) {
+                pooledConnection.evictStatement(sql);
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        } finally {
+            if (borrowed && pooledConnection != null)
+                connectionPool.release(pooledConnection);
+        }
+    }
+
+    /**
+     * Runs a query and gives the whole resultSet to the handler
+     *
+     * @param sql        - String - fixed sql text with ? for every parameter
+     * @param handler    - ResultSetHandler - reads the rows
+     * @param parameters - the values of the parameters
+     * @return T - the result created by the handler
+     */
+    public <T> T query(String sql, ResultSetHandler<T> handler, Object... parameters) {
+        return execute(sql, statement -> {
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return handler.handle(resultSet);
+            }
+        }, parameters);
+    }
+
+    /**
+     * Runs a query and maps its first row
+     *
+     * @param sql        - String - fixed sql text with ? for every parameter
+     * @param rowMapper  - RowMapper - creates the object from the row
+     * @param parameters - the values of the parameters
+     * @return T - the object from the first row or null if there are no rows
+     */
+    public <T> T queryForObject(String sql, RowMapper<T> rowMapper, Object... parameters) {
+        return query(sql, resultSet -> resultSet.next() ? rowMapper.mapRow(resultSet) : null, parameters);
+    }
+
+    /**
+     * Runs a query and maps every row
+     *
+     * @param sql        - String - fixed sql text with ? for every parameter
+     * @param rowMapper  - RowMapper - creates the object from a row
+     * @param parameters - the values of the parameters
+     * @return List <T> - the objects in the order of the rows
+     */
+    public <T> List<T> queryForList(String sql, RowMapper<T> rowMapper, Object... parameters) {
+        return query(sql, resultSet -> {
+            List<T> rows = new ArrayList<>();
+            while (resultSet.next())
+                rows.add(rowMapper.mapRow(resultSet));
+            return rows;
+        }, parameters);
+    }
+
+    /**
+     * Runs an insert, update or delete statement
+     *
+     * @param sql        - String - fixed sql text with ? for every parameter
+     * @param parameters - the values of the parameters
+     * @return int - the number of changed rows
+     */
+    public int update(String sql, Object... parameters) {
+        return execute(sql, PreparedStatement::executeUpdate, parameters);
+    }
+
+    /**
+     * Runs the same insert, update or delete statement for every row of parameters, sending the rows to the database
+     * in batches
+     *
+     * @param sql           - String - fixed sql text with ? for every parameter
+     * @param parameterRows - Iterable < Object[] > - the values of the parameters for every execution
+     * @param batchSize     - int - how many rows are sent to the database at once
+     * @return int - the number of changed rows
+     */
+    public int batchUpdate(String sql, Iterable<Object[]> parameterRows, int batchSize) {
+        return countChangedRows(batchUpdateEach(sql, parameterRows, batchSize));
+    }
+
+    /**
+     * Runs the same insert, update or delete statement for every row of parameters like batchUpdate, but tells how
+     * many rows every execution changed
+     *
+     * @param sql           - String - fixed sql text with ? for every parameter
+     * @param parameterRows - Iterable < Object[] > - the values of the parameters for every execution
+     * @param batchSize     - int - how many rows are sent to the database at once
+     * @return int[] - the number of rows changed by every execution, in the order of the parameter rows, or
+     * Statement.SUCCESS_NO_INFO where the driver doesn't tell
+     */
+    public int[] batchUpdateEach(String sql, Iterable<Object[]> parameterRows, int batchSize) {
+        if (batchSize <= 0)
+            throw new IllegalArgumentException("The size of a batch must be positive!");
+
+        return execute(sql, statement -> {
+            int[] updateCounts = new int[0];
+            int pendingRows = 0;
+            for (Object[] parameters : parameterRows) {
+                for (int i = 0; i < parameters.length; i++)
+                    statement.setObject(i + 1, parameters[i]);
+                statement.addBatch();
+                if (++pendingRows == batchSize) {
+                    updateCounts = append(updateCounts, statement.executeBatch());
+                    pendingRows = 0;
+                }
+            }
+            if (pendingRows > 0)
+                updateCounts = append(updateCounts, statement.executeBatch());
+            return updateCounts;
+        });
+    }
+
+    private static int[] append(int[] updateCounts, int[] batchCounts) {
+        int[] allCounts = Arrays.copyOf(updateCounts, updateCounts.length + batchCounts.length);
+        System.arraycopy(batchCounts, 0, allCounts, updateCounts.length, batchCounts.length);
+        return allCounts;
+    }
+
+    private static int countChangedRows(int[] updateCounts) {
+        int changedRows = 0;
+        for (int updateCount : updateCounts)
+            changedRows += (updateCount == Statement.SUCCESS_NO_INFO) ? 1 : updateCount;
+        return changedRows;
+    }
+
+    /**
+     * Runs all statements of the callback on one connection, in a single transaction.
+     * If this runner is already part of a transaction, the callback joins it
+     *
+     * @param callback - TransactionCallback - the statements of the transaction
+     * @return T - the result of the callback
+     */
+    public <T> T inTransaction(TransactionCallback<T> callback) {
+        if (transactionConnection != null) {
+            try {
+                return callback.doInTransaction(this);
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        PooledConnection pooledConnection = null;
+        try {
+            pooledConnection = connectionPool.borrow();
+            Connection connection = pooledConnection.getPhysicalConnection();
+            connection.setAutoCommit(false);
+            T result = callback.doInTransaction(new QueryRunner(connectionPool, pooledConnection));
+            connection.commit();
+            return result;
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        } finally {
+            // release rolls back everything that was not committed
+            if (pooledConnection != null)
+                connectionPool.release(pooledConnection);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package java_projects.demo.database;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+@FunctionalInterface
+public interface ResultSetHandler<T> {
+    /**
+     * Reads the whole resultSet and creates the result of the query
+     *
+     * @param resultSet - ResultSet - positioned before the first row
+     * @return T - the result of the query
+     * @throws SQLException - if the rows can't be read
+     */
+    T handle(ResultSet resultSet) throws SQLException;
+}
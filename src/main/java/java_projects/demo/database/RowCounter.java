@@ -0,0 +1,58 @@
+package java_projects.demo.database;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The number of rows of a table, kept in memory. The repositories adjust it after every insert and delete they
+ * commit and the pool reconciles it with the real count on a schedule, which also corrects the rows changed by
+ * other applications. Between reconciliations the count may be off by the changes that were not made through the
+ * repositories of this pool
+ */
+public class RowCounter {
+    private final QueryRunner queryRunner;
+    private final String countQuery;
+    private final AtomicLong count = new AtomicLong();
+    private volatile boolean loaded = false;
+
+    /**
+     * Constructor for the counter of a table
+     *
+     * @param queryRunner - QueryRunner - runs the count query
+     * @param countQuery  - String - a query that returns the number of rows of the table
+     */
+    RowCounter(QueryRunner queryRunner, String countQuery) {
+        this.queryRunner = queryRunner;
+        this.countQuery = countQuery;
+    }
+
+    /**
+     * Returns the number of rows. Only the first call runs the count query
+     *
+     * @return int
+     */
+    public int get() {
+        if (!loaded)
+            reconcile();
+        return (int) Math.max(0, count.get());
+    }
+
+    /**
+     * Adjusts the count after rows were inserted or deleted. Must be called after the change was committed
+     *
+     * @param delta - long - the number of inserted rows, negative for deleted rows
+     */
+    public void add(long delta) {
+        // until the first count is loaded the change is part of what the count query will see
+        if (loaded && delta != 0)
+            count.addAndGet(delta);
+    }
+
+    /**
+     * Replaces the count with the result of the count query
+     */
+    public void reconcile() {
+        Long rows = queryRunner.queryForObject(countQuery, resultSet -> resultSet.getLong(1));
+        count.set(rows == null ? 0 : rows);
+        loaded = true;
+    }
+}
@@ -0,0 +1,16 @@
+package java_projects.demo.database;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+@FunctionalInterface
+public interface RowMapper<T> {
+    /**
+     * Creates an object from the current row of the resultSet
+     *
+     * @param resultSet - ResultSet - positioned on the row we map
+     * @return T - the object created from the row
+     * @throws SQLException - if the columns can't be read
+     */
+    T mapRow(ResultSet resultSet) throws SQLException;
+}
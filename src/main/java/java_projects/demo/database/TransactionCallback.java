@@ -0,0 +1,15 @@
+package java_projects.demo.database;
+
+import java.sql.SQLException;
+
+@FunctionalInterface
+public interface TransactionCallback<T> {
+    /**
+     * Runs the statements of a transaction. Every statement must be executed through the given queryRunner
+     *
+     * @param queryRunner - QueryRunner - bound to the connection of the transaction
+     * @return T - the result of the transaction
+     * @throws SQLException - if a statement fails; the transaction is rolled back
+     */
+    T doInTransaction(QueryRunner queryRunner) throws SQLException;
+}
@@ -0,0 +1,32 @@
+package java_projects.demo.domain;
+
+public class ConversationSummary {
+    private final String otherUser;
+    private final Message lastMessage;
+    private final int unreadCount;
+
+    /**
+     * Constructor for the summary of a conversation, as seen by one of its users
+     *
+     * @param otherUser   - String - the username of the other user of the conversation
+     * @param lastMessage - Message - the newest message of the conversation
+     * @param unreadCount - int - how many messages the user has not seen yet
+     */
+    public ConversationSummary(String otherUser, Message lastMessage, int unreadCount) {
+        this.otherUser = otherUser;
+        this.lastMessage = lastMessage;
+        this.unreadCount = unreadCount;
+    }
+
+    public String getOtherUser() {
+        return otherUser;
+    }
+
+    public Message getLastMessage() {
+        return lastMessage;
+    }
+
+    public int getUnreadCount() {
+        return unreadCount;
+    }
+}
@@ -0,0 +1,33 @@
+package java_projects.demo.domain;
+
+public class FriendRecommendation {
+    private final String username;
+    private final int mutualFriends;
+
+    /**
+     * Constructor for a user recommended as a friend
+     *
+     * @param username      - String - the username of the recommended user
+     * @param mutualFriends - int - how many friends the two users have in common
+     */
+    public FriendRecommendation(String username, int mutualFriends) {
+        this.username = username;
+        this.mutualFriends = mutualFriends;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public int getMutualFriends() {
+        return mutualFriends;
+    }
+
+    @Override
+    public String toString() {
+        return "FriendRecommendation{" +
+                "username='" + username + '\'' +
+                ", mutualFriends=" + mutualFriends +
+                '}';
+    }
+}
@@ -1,11 +1,9 @@
 package java_projects.demo.domain;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Objects;
 
-public class Friendship extends Entity<ArrayList<String>>{
+public class Friendship extends Entity<FriendshipKey>{
     private LocalDateTime friendshipMoment;
 
     private boolean isPending;
@@ -18,59 +16,65 @@ public class Friendship extends Entity<ArrayList<String>>{
      * @param idFriend2 the id of the second user
      */
     public Friendship(String idFriend1, String idFriend2){
-        super(new ArrayList<>(Arrays.asList(idFriend1, idFriend2)));
-        this.friendshipMoment = LocalDateTime.now();
-        this.isPending = true;
-        this.isFromFirstFriend = true;
+        this(idFriend1, idFriend2, LocalDateTime.now(), true, true);
     }
 
     /**
-     * Create a new friendship between two users and will store the current time as the moment of friendship start
+     * Create a new friendship between two users. The users are stored in the order of their key, so if idFriend2
+     * comes first, isFromFirstFriend is turned around and the same user stays the sender of the request
      * @param idFriend1 the id of the first user
      * @param idFriend2 the id of the second user
+     * @param isFromFirstFriend true if the request was sent by idFriend1
      */
     public Friendship(String idFriend1, String idFriend2, LocalDateTime friendshipMoment, boolean isPending,
                       boolean isFromFirstFriend){
-        super(new ArrayList<>(Arrays.asList(idFriend1, idFriend2)));
+        super(new FriendshipKey(idFriend1, idFriend2));
         this.friendshipMoment = friendshipMoment;
         this.isPending = isPending;
-        this.isFromFirstFriend = isFromFirstFriend;
+        this.isFromFirstFriend = isFromFirstFriend == idFriend1.equals(getId().getUser1());
+    }
+
+    /**
+     * Replace the two friends, keeping the order of the key
+     * @param idFriend1 the id of the first user
+     * @param idFriend2 the id of the second user
+     * @param isFromFirstFriend true if the request was sent by idFriend1
+     */
+    private void setFriends(String idFriend1, String idFriend2, boolean isFromFirstFriend) {
+        this.setId(new FriendshipKey(idFriend1, idFriend2));
+        this.isFromFirstFriend = isFromFirstFriend == idFriend1.equals(getId().getUser1());
     }
 
     /**
-     * Return the id of the first friend
+     * Return the id of the first friend, the one that comes first in the key
      * @return the id of the friend
      */
     public String getIdFriend1() {
-        ArrayList<String> users = new ArrayList<>(this.getId());
-        return users.getFirst();
+        return getId().getUser1();
     }
 
     /**
-     * Update the id of the second friend
+     * Update the id of the first friend; the sender of the request stays the same
      * @param idFriend1 - the new id
      */
     public void setIdFriend1(String idFriend1) {
-        String secondUser = this.getIdFriend2();
-        this.setId(new ArrayList<>(Arrays.asList(idFriend1, secondUser)));
+        setFriends(idFriend1, getIdFriend2(), isFromFirstFriend);
     }
 
     /**
-     * Return the id of the second friend
+     * Return the id of the second friend, the one that comes second in the key
      * @return the id of the friend
      */
     public String getIdFriend2() {
-        ArrayList<String> users = new ArrayList<>(this.getId());
-        return users.get(1);
+        return getId().getUser2();
     }
 
     /**
-     * Update the id of the second friend
+     * Update the id of the second friend; the sender of the request stays the same
      * @param idFriend2 - the new friend
      */
     public void setIdFriend2(String idFriend2) {
-        String firstUser = this.getIdFriend2();
-        this.setId(new ArrayList<>(Arrays.asList(firstUser, idFriend2)));
+        setFriends(getIdFriend1(), idFriend2, isFromFirstFriend);
     }
 
     /**
@@ -120,8 +124,6 @@ public class Friendship extends Entity<ArrayList<String>>{
     }
 
     public String getOtherFriend(String username){
-        if(this.getIdFriend1().equals(username))
-            return getIdFriend2();
-        return getIdFriend1();
+        return getId().getOther(username);
     }
 }
@@ -0,0 +1,87 @@
+package java_projects.demo.domain;
+
+import java.io.Serializable;
+
+/**
+ * The id of a friendship: the usernames of the two friends, the smaller one first (compared like String.compareTo),
+ * so the same two users always give equal keys whatever order they are given in. The key is immutable and its hash
+ * is computed once, so it is a cheap key for maps and sets
+ */
+public final class FriendshipKey implements Serializable, Comparable<FriendshipKey> {
+    private final String user1;
+    private final String user2;
+    private final int hash;
+
+    /**
+     * Create the key of the friendship between two users; the order of the usernames doesn't matter
+     * @param username1 the username of one user
+     * @param username2 the username of the other user
+     */
+    public FriendshipKey(String username1, String username2) {
+        if (username1 == null || username2 == null)
+            throw new IllegalArgumentException("The usernames of a friendship can't be null!");
+        boolean inOrder = username1.compareTo(username2) <= 0;
+        this.user1 = inOrder ? username1 : username2;
+        this.user2 = inOrder ? username2 : username1;
+        this.hash = 31 * user1.hashCode() + user2.hashCode();
+    }
+
+    /**
+     * Return the username that comes first
+     * @return String
+     */
+    public String getUser1() {
+        return user1;
+    }
+
+    /**
+     * Return the username that comes second
+     * @return String
+     */
+    public String getUser2() {
+        return user2;
+    }
+
+    /**
+     * Return true if the user is one of the two friends
+     * @param username - String
+     * @return boolean
+     */
+    public boolean contains(String username) {
+        return user1.equals(username) || user2.equals(username);
+    }
+
+    /**
+     * Return the friend of the user in this friendship
+     * @param username - String - one of the two friends
+     * @return String
+     */
+    public String getOther(String username) {
+        return user1.equals(username) ? user2 : user1;
+    }
+
+    @Override
+    public int compareTo(FriendshipKey other) {
+        int comparison = user1.compareTo(other.user1);
+        return comparison != 0 ? comparison : user2.compareTo(other.user2);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (!(obj instanceof FriendshipKey other))
+            return false;
+        return hash == other.hash && user1.equals(other.user1) && user2.equals(other.user2);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + user1 + ", " + user2 + "]";
+    }
+}
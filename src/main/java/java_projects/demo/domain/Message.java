@@ -10,7 +10,12 @@ public class Message extends Entity<Long> {
     private LocalDateTime messageTime;
     private boolean received;
     private boolean seen;
-
+    private String preview;
+    // false only while the content of a message read without it has not been loaded yet; written after
+    // messageContent, so a thread that sees it true sees the content too
+    private volatile boolean contentLoaded = true;
+    // set only while the content of a message read without it has not been loaded yet
+    private transient MessageContentLoader contentLoader;
 
     /**
      * Method for constructing a message
@@ -47,6 +52,26 @@ public class Message extends Entity<Long> {
         this.messageTime = messageTime;
     }
 
+    /**
+     * Method for constructing a message read without its content, like in the lists of messages. The content is
+     * loaded with contentLoader the first time it is asked for
+     * @param idMessage - Long - the id of the message
+     * @param sender - String - the user who send the message
+     * @param receiver - String - the user who is intended to receive the message
+     * @param received - Boolean
+     * @param seen - Boolean
+     * @param messageTime - LocalDateTime - the moment the message was sent
+     * @param preview - String - the beginning of the message
+     * @param contentLoader - MessageContentLoader - loads the content of the message
+     */
+    public Message(Long idMessage, String sender, String receiver, Boolean received, Boolean seen,
+                   LocalDateTime messageTime, String preview, MessageContentLoader contentLoader) {
+        this(idMessage, sender, receiver, null, received, seen, messageTime);
+        this.preview = preview;
+        this.contentLoader = contentLoader;
+        this.contentLoaded = false;
+    }
+
     public String getSender() {
         return sender;
     }
@@ -63,12 +88,48 @@ public class Message extends Entity<Long> {
         this.receiver = receiver;
     }
 
+    /**
+     * Returns the content of the message, loading it first if the message was read without it. The content is
+     * loaded once, even if several threads ask for it at the same time
+     * @return String
+     * @throws IllegalStateException if the message was read without its content and can't load it anymore, like
+     * after it was deserialized
+     */
     public String getMessageContent() {
+        if (!contentLoaded) {
+            synchronized (this) {
+                if (!contentLoaded) {
+                    if (contentLoader == null)
+                        throw new IllegalStateException("The content of the message was not loaded!");
+                    messageContent = contentLoader.load(getId());
+                    contentLoader = null;
+                    contentLoaded = true;
+                }
+            }
+        }
         return messageContent;
     }
 
-    public void setMessageContent(String messageContent) {
+    public synchronized void setMessageContent(String messageContent) {
         this.messageContent = messageContent;
+        this.contentLoader = null;
+        this.contentLoaded = true;
+    }
+
+    /**
+     * Returns true if the content of the message is in memory, so getMessageContent doesn't query the database
+     * @return boolean
+     */
+    public boolean isContentLoaded() {
+        return contentLoaded;
+    }
+
+    /**
+     * Returns the beginning of the message, as stored with it, or the content if the message has no stored preview
+     * @return String
+     */
+    public String getPreview() {
+        return preview != null ? preview : getMessageContent();
     }
 
     public LocalDateTime getMessageTime() {
@@ -95,13 +156,20 @@ public class Message extends Entity<Long> {
         this.seen = seen;
     }
 
+    /**
+     * Compares the messages without loading their content: the contents are compared only if both are in memory,
+     * so comparing messages read without their content doesn't query the database
+     * @param other - Message
+     * @return boolean
+     */
     public boolean equals(Message other){
         if(other == null) return false;
         return (
                 Objects.equals(super.getId(), other.getId()) &&
                         Objects.equals(this.sender, other.sender) &&
                         Objects.equals(this.receiver, other.receiver) &&
-                        Objects.equals(this.messageContent, other.messageContent) &&
+                        (!this.contentLoaded || !other.contentLoaded ||
+                                Objects.equals(this.messageContent, other.messageContent)) &&
                         Objects.equals(this.messageTime, other.messageTime) &&
                         Objects.equals(this.received, other.received) &&
                         Objects.equals(this.seen, other.seen)
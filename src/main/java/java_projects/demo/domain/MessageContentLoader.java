@@ -0,0 +1,15 @@
+package java_projects.demo.domain;
+
+/**
+ * Loads the content of a message that was read without it, the first time the content is asked for
+ */
+@FunctionalInterface
+public interface MessageContentLoader {
+    /**
+     * Returns the content of the message with chosen id
+     *
+     * @param idMessage - Long
+     * @return String - empty if the message no longer exists
+     */
+    String load(Long idMessage);
+}
@@ -0,0 +1,116 @@
+package java_projects.demo.events;
+
+import java_projects.demo.domain.Friendship;
+import java_projects.demo.domain.FriendshipKey;
+import java_projects.demo.domain.Message;
+
+import java.time.LocalDateTime;
+
+/**
+ * A change made through the repositories. The EventBus creates its events once and fills them again for every
+ * publishing, so only the fields of the type of the event are set: the message events carry the message, and the
+ * previous message for MESSAGE_UPDATED; the receipts written for many messages carry the sender, the receiver, the
+ * moment up to which the messages were marked, and for MESSAGES_SEEN the id of the newest message and how many were
+ * seen; the friendship events carry the key of the friendship, and the friendship for FRIENDSHIP_ADDED
+ */
+public final class Event {
+    private EventType type;
+    private Message message;
+    private Message previousMessage;
+    private Friendship friendship;
+    private FriendshipKey friendshipKey;
+    private String sender;
+    private String receiver;
+    private LocalDateTime moment;
+    private Long idMessage;
+    private int count;
+
+    Event() {
+    }
+
+    void setMessage(EventType type, Message message, Message previousMessage) {
+        clear(type);
+        this.message = message;
+        this.previousMessage = previousMessage;
+    }
+
+    void setReceipt(EventType type, String sender, String receiver, LocalDateTime moment, Long idMessage, int count) {
+        clear(type);
+        this.sender = sender;
+        this.receiver = receiver;
+        this.moment = moment;
+        this.idMessage = idMessage;
+        this.count = count;
+    }
+
+    void setFriendship(EventType type, Friendship friendship, FriendshipKey friendshipKey) {
+        clear(type);
+        this.friendship = friendship;
+        this.friendshipKey = friendshipKey;
+    }
+
+    private void clear(EventType type) {
+        this.type = type;
+        this.message = null;
+        this.previousMessage = null;
+        this.friendship = null;
+        this.friendshipKey = null;
+        this.sender = null;
+        this.receiver = null;
+        this.moment = null;
+        this.idMessage = null;
+        this.count = 0;
+    }
+
+    public EventType getType() {
+        return type;
+    }
+
+    public Message getMessage() {
+        return message;
+    }
+
+    public Message getPreviousMessage() {
+        return previousMessage;
+    }
+
+    public Friendship getFriendship() {
+        return friendship;
+    }
+
+    public FriendshipKey getFriendshipKey() {
+        return friendshipKey;
+    }
+
+    public String getSender() {
+        return sender;
+    }
+
+    public String getReceiver() {
+        return receiver;
+    }
+
+    public LocalDateTime getMoment() {
+        return moment;
+    }
+
+    public Long getIdMessage() {
+        return idMessage;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return "Event{" +
+                "type=" + type +
+                ", message=" + (message == null ? null : message.getId()) +
+                ", friendshipKey=" + friendshipKey +
+                ", sender=" + sender +
+                ", receiver=" + receiver +
+                ", moment=" + moment +
+                '}';
+    }
+}
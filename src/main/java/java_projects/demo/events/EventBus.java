@@ -0,0 +1,345 @@
+package java_projects.demo.events;
+
+import java_projects.demo.domain.Friendship;
+import java_projects.demo.domain.FriendshipKey;
+import java_projects.demo.domain.Message;
+import java_projects.demo.repository.FriendshipsListener;
+import java_projects.demo.repository.FriendshipsRepository;
+import java_projects.demo.repository.MessagesListener;
+import java_projects.demo.repository.MessagesRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Tells the subscribers about the messages and friendships changed through the repositories, so views, caches and
+ * indexes can react without querying the database again. Registered as a listener of the repositories, the bus turns
+ * every change into an event of a ring buffer: the events are created once, and publishers claim their positions
+ * with a compare-and-set instead of a lock. Every subscriber handles every event on its own thread, in the order
+ * the events were published. When the ring is full, the publishers wait for the slowest subscriber, so a subscriber
+ * that never returns stops the repositories too
+ */
+public class EventBus implements MessagesListener, FriendshipsListener, AutoCloseable {
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final Event[] events;
+    private final int indexMask;
+    private final int indexShift;
+    // the lap of the sequence last published in every slot of the ring; a slot is readable when it matches
+    private final AtomicIntegerArray publishedLaps;
+    // the highest sequence claimed by a publisher; the events up to it may still be written
+    private final AtomicLong cursor = new AtomicLong(-1);
+    // the smallest sequence handled by all subscribers when the publishers last looked
+    private final AtomicLong cachedGatingSequence = new AtomicLong(-1);
+    private final WaitStrategy waitStrategy;
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final AtomicLong subscriberCount = new AtomicLong();
+    private volatile boolean closed = false;
+
+    /**
+     * Constructor for a bus with the default capacity, whose subscribers sleep while waiting
+     */
+    public EventBus() {
+        this(DEFAULT_CAPACITY, WaitStrategy.sleeping());
+    }
+
+    /**
+     * Constructor for an event bus
+     *
+     * @param capacity     - int - how many events may wait for the slowest subscriber; must be a power of two
+     * @param waitStrategy - WaitStrategy - how the subscribers wait for new events
+     */
+    public EventBus(int capacity, WaitStrategy waitStrategy) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1)
+            throw new IllegalArgumentException("The capacity of the bus must be a power of two!");
+        if (waitStrategy == null)
+            throw new IllegalArgumentException("The wait strategy can't be null!");
+
+        this.events = new Event[capacity];
+        for (int i = 0; i < capacity; i++)
+            events[i] = new Event();
+        this.indexMask = capacity - 1;
+        this.indexShift = Integer.numberOfTrailingZeros(capacity);
+        this.publishedLaps = new AtomicIntegerArray(capacity);
+        for (int i = 0; i < capacity; i++)
+            publishedLaps.set(i, -1);
+        this.waitStrategy = waitStrategy;
+    }
+
+    /**
+     * Registers the bus as a listener of the repositories, so every change made through them is published
+     *
+     * @param messagesRepository    - MessagesRepository
+     * @param friendshipsRepository - FriendshipsRepository
+     */
+    public void listenTo(MessagesRepository messagesRepository, FriendshipsRepository friendshipsRepository) {
+        messagesRepository.addListener(this);
+        friendshipsRepository.addListener(this);
+    }
+
+    /**
+     * Starts a thread that hands the handler every event published from now on
+     *
+     * @param handler - EventHandler
+     * @return Subscription - closing it stops the thread
+     */
+    public Subscription subscribe(EventHandler handler) {
+        if (closed)
+            throw new IllegalStateException("The event bus is closed!");
+        Subscription subscription = new Subscription(handler, cursor.get(),
+                "event-bus-subscriber-" + subscriberCount.incrementAndGet());
+        // the subscription starts after the claimed events, which the publishers may overwrite only once it is
+        // gating them, so it is added before its thread starts
+        subscriptions.add(subscription);
+        subscription.thread.start();
+        return subscription;
+    }
+
+    /**
+     * Returns the highest sequence claimed by a publisher
+     *
+     * @return long - -1 if no event was published
+     */
+    public long getCursor() {
+        return cursor.get();
+    }
+
+    public int getCapacity() {
+        return events.length;
+    }
+
+    @Override
+    public void messageAdded(Message message) {
+        long sequence = claim();
+        if (sequence >= 0) {
+            eventAt(sequence).setMessage(EventType.MESSAGE_ADDED, message, null);
+            publish(sequence);
+        }
+    }
+
+    @Override
+    public void messageUpdated(Message previous, Message message) {
+        long sequence = claim();
+        if (sequence >= 0) {
+            eventAt(sequence).setMessage(EventType.MESSAGE_UPDATED, message, previous);
+            publish(sequence);
+        }
+    }
+
+    @Override
+    public void messageRemoved(Message message) {
+        long sequence = claim();
+        if (sequence >= 0) {
+            eventAt(sequence).setMessage(EventType.MESSAGE_REMOVED, message, null);
+            publish(sequence);
+        }
+    }
+
+    @Override
+    public void messagesReceived(String sender, String receiver, LocalDateTime upTo) {
+        long sequence = claim();
+        if (sequence >= 0) {
+            eventAt(sequence).setReceipt(EventType.MESSAGES_RECEIVED, sender, receiver, upTo, null, 0);
+            publish(sequence);
+        }
+    }
+
+    @Override
+    public void messageSeen(Message message) {
+        long sequence = claim();
+        if (sequence >= 0) {
+            eventAt(sequence).setMessage(EventType.MESSAGE_SEEN, message, null);
+            publish(sequence);
+        }
+    }
+
+    @Override
+    public void messagesSeen(String sender, String receiver, LocalDateTime upTo, Long upToId, int seenCount) {
+        long sequence = claim();
+        if (sequence >= 0) {
+            eventAt(sequence).setReceipt(EventType.MESSAGES_SEEN, sender, receiver, upTo, upToId, seenCount);
+            publish(sequence);
+        }
+    }
+
+    @Override
+    public void friendshipAdded(Friendship friendship) {
+        long sequence = claim();
+        if (sequence >= 0) {
+            eventAt(sequence).setFriendship(EventType.FRIENDSHIP_ADDED, friendship, friendship.getId());
+            publish(sequence);
+        }
+    }
+
+    @Override
+    public void friendshipRemoved(String username1, String username2) {
+        long sequence = claim();
+        if (sequence >= 0) {
+            eventAt(sequence).setFriendship(EventType.FRIENDSHIP_REMOVED, null,
+                    new FriendshipKey(username1, username2));
+            publish(sequence);
+        }
+    }
+
+    private Event eventAt(long sequence) {
+        return events[(int) sequence & indexMask];
+    }
+
+    /**
+     * Claims the next sequence, waiting while its slot holds an event that a subscriber has not handled yet
+     *
+     * @return long - the claimed sequence, or -1 if the bus is closed
+     */
+    private long claim() {
+        while (!closed) {
+            long current = cursor.get();
+            long next = current + 1;
+            long wrapPoint = next - events.length;
+            if (wrapPoint > cachedGatingSequence.get()) {
+                long gatingSequence = getMinimumSequence(current);
+                if (wrapPoint > gatingSequence) {
+                    LockSupport.parkNanos(1);
+                    continue;
+                }
+                cachedGatingSequence.set(gatingSequence);
+            } else if (cursor.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+        return -1;
+    }
+
+    private void publish(long sequence) {
+        publishedLaps.set((int) sequence & indexMask, (int) (sequence >>> indexShift));
+        waitStrategy.signalAllWhenBlocking();
+    }
+
+    private boolean isPublished(long sequence) {
+        return publishedLaps.get((int) sequence & indexMask) == (int) (sequence >>> indexShift);
+    }
+
+    /**
+     * Returns the highest sequence from lowest on that is published without a gap, since a later publisher may
+     * finish before an earlier one
+     */
+    private long getHighestPublishedSequence(long lowest, long available) {
+        for (long sequence = lowest; sequence <= available; sequence++)
+            if (!isPublished(sequence))
+                return sequence - 1;
+        return available;
+    }
+
+    private long getMinimumSequence(long minimum) {
+        for (Subscription subscription : subscriptions)
+            minimum = Math.min(minimum, subscription.sequence.get());
+        return minimum;
+    }
+
+    /**
+     * Stops publishing, lets every subscriber handle the events published so far and stops the subscribers. The
+     * changes made through the repositories afterwards are not published
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Subscription subscription : subscriptions)
+            subscription.close();
+    }
+
+    /**
+     * A subscriber of the bus, with its own thread
+     */
+    public final class Subscription implements AutoCloseable {
+        private final EventHandler handler;
+        // the highest sequence handled by the subscriber
+        private final AtomicLong sequence;
+        private final Thread thread;
+        private final LongAdder failedEvents = new LongAdder();
+        private volatile boolean stopping = false;
+        private volatile long stopSequence = Long.MAX_VALUE;
+
+        private Subscription(EventHandler handler, long startSequence, String name) {
+            this.handler = handler;
+            this.sequence = new AtomicLong(startSequence);
+            this.thread = new Thread(this::run, name);
+            this.thread.setDaemon(true);
+        }
+
+        private void run() {
+            try {
+                long next = sequence.get() + 1;
+                while (next <= stopSequence) {
+                    long available = waitStrategy.waitFor(next, cursor, () -> stopping);
+                    if (available < next) {
+                        if (stopping)
+                            break;
+                        continue;
+                    }
+                    long highest = getHighestPublishedSequence(next, Math.min(available, stopSequence));
+                    if (highest < next) {
+                        // the next event is claimed but its publisher is still writing it
+                        Thread.onSpinWait();
+                        continue;
+                    }
+                    for (; next <= highest; next++) {
+                        try {
+                            handler.onEvent(eventAt(next), next, next == highest);
+                        } catch (Throwable e) {
+                            // one failing event doesn't stop the subscriber from handling the next ones
+                            failedEvents.increment();
+                        }
+                    }
+                    sequence.set(highest);
+                }
+            } finally {
+                // a subscriber that stops, even by dying, must not keep the publishers waiting for it
+                stopping = true;
+                subscriptions.remove(this);
+            }
+        }
+
+        /**
+         * Returns the highest sequence handled by this subscriber
+         *
+         * @return long
+         */
+        public long getSequence() {
+            return sequence.get();
+        }
+
+        /**
+         * Returns how many events the handler failed to handle, by throwing an exception
+         *
+         * @return long
+         */
+        public long getFailedEvents() {
+            return failedEvents.sum();
+        }
+
+        /**
+         * Lets the subscriber handle the events claimed so far and stops it. Its events no longer hold back the
+         * publishers
+         */
+        @Override
+        public void close() {
+            if (stopping)
+                return;
+            stopSequence = cursor.get();
+            stopping = true;
+            waitStrategy.signalAllWhenBlocking();
+            if (Thread.currentThread() != thread) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            subscriptions.remove(this);
+        }
+    }
+}
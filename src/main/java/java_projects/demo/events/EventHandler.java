@@ -0,0 +1,15 @@
+package java_projects.demo.events;
+
+@FunctionalInterface
+public interface EventHandler {
+    /**
+     * Called on the thread of the subscriber for every event published after it subscribed, in the order of
+     * publishing. The event is reused for later events when the method returns, so the handler must copy what it
+     * keeps
+     *
+     * @param event      - Event
+     * @param sequence   - long - the position of the event on the bus
+     * @param endOfBatch - boolean - true if no other event is ready to be handled, a good moment to refresh a view
+     */
+    void onEvent(Event event, long sequence, boolean endOfBatch);
+}
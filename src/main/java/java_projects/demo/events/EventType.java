@@ -0,0 +1,15 @@
+package java_projects.demo.events;
+
+/**
+ * What an Event tells about
+ */
+public enum EventType {
+    MESSAGE_ADDED,
+    MESSAGE_UPDATED,
+    MESSAGE_REMOVED,
+    MESSAGES_RECEIVED,
+    MESSAGE_SEEN,
+    MESSAGES_SEEN,
+    FRIENDSHIP_ADDED,
+    FRIENDSHIP_REMOVED
+}
@@ -0,0 +1,178 @@
+package java_projects.demo.events;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * How a subscriber of the EventBus waits for new events. The strategies trade latency for processor time: busy
+ * spinning reacts fastest but keeps a core busy, blocking leaves the processor to other threads but wakes up slowest
+ */
+public interface WaitStrategy {
+    /**
+     * Waits until the event with chosen sequence was claimed by a publisher, or the subscriber is stopped
+     *
+     * @param sequence - long - the next sequence the subscriber handles
+     * @param cursor   - AtomicLong - the highest sequence claimed by the publishers
+     * @param stopped  - BooleanSupplier - true when the subscriber must stop waiting
+     * @return long - the highest claimed sequence; smaller than sequence only if the subscriber was stopped
+     */
+    long waitFor(long sequence, AtomicLong cursor, BooleanSupplier stopped);
+
+    /**
+     * Wakes up the subscribers that block, after an event was published or a subscriber was stopped
+     */
+    void signalAllWhenBlocking();
+
+    /**
+     * Parks the subscriber on a condition until a publisher signals it. Uses no processor while waiting, but every
+     * publishing that finds a subscriber waiting takes a lock
+     *
+     * @return WaitStrategy
+     */
+    static WaitStrategy blocking() {
+        return new BlockingWaitStrategy();
+    }
+
+    /**
+     * Spins, then yields, then sleeps for short periods. A good default for views and caches
+     *
+     * @return WaitStrategy
+     */
+    static WaitStrategy sleeping() {
+        return new SleepingWaitStrategy();
+    }
+
+    /**
+     * Spins, then yields the processor to other threads without sleeping
+     *
+     * @return WaitStrategy
+     */
+    static WaitStrategy yielding() {
+        return new YieldingWaitStrategy();
+    }
+
+    /**
+     * Spins all the time. Only for subscribers that have a core of their own
+     *
+     * @return WaitStrategy
+     */
+    static WaitStrategy busySpin() {
+        return new BusySpinWaitStrategy();
+    }
+
+    final class BlockingWaitStrategy implements WaitStrategy {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition published = lock.newCondition();
+        // set by the waiting subscribers, so the publishers take the lock only when somebody waits
+        private final AtomicBoolean signalNeeded = new AtomicBoolean(false);
+
+        private BlockingWaitStrategy() {
+        }
+
+        @Override
+        public long waitFor(long sequence, AtomicLong cursor, BooleanSupplier stopped) {
+            long available = cursor.get();
+            if (available >= sequence)
+                return available;
+            lock.lock();
+            try {
+                while (true) {
+                    signalNeeded.set(true);
+                    available = cursor.get();
+                    if (available >= sequence || stopped.getAsBoolean())
+                        return available;
+                    published.awaitUninterruptibly();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void signalAllWhenBlocking() {
+            if (!signalNeeded.getAndSet(false))
+                return;
+            lock.lock();
+            try {
+                published.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    final class SleepingWaitStrategy implements WaitStrategy {
+        private static final int SPINS = 100;
+        private static final int YIELDS = 100;
+        private static final long SLEEP_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+        private SleepingWaitStrategy() {
+        }
+
+        @Override
+        public long waitFor(long sequence, AtomicLong cursor, BooleanSupplier stopped) {
+            int attempts = 0;
+            long available;
+            while ((available = cursor.get()) < sequence && !stopped.getAsBoolean()) {
+                if (attempts < SPINS)
+                    Thread.onSpinWait();
+                else if (attempts < SPINS + YIELDS)
+                    Thread.yield();
+                else
+                    LockSupport.parkNanos(SLEEP_NANOS);
+                attempts++;
+            }
+            return available;
+        }
+
+        @Override
+        public void signalAllWhenBlocking() {
+        }
+    }
+
+    final class YieldingWaitStrategy implements WaitStrategy {
+        private static final int SPINS = 100;
+
+        private YieldingWaitStrategy() {
+        }
+
+        @Override
+        public long waitFor(long sequence, AtomicLong cursor, BooleanSupplier stopped) {
+            int attempts = 0;
+            long available;
+            while ((available = cursor.get()) < sequence && !stopped.getAsBoolean()) {
+                if (attempts++ < SPINS)
+                    Thread.onSpinWait();
+                else
+                    Thread.yield();
+            }
+            return available;
+        }
+
+        @Override
+        public void signalAllWhenBlocking() {
+        }
+    }
+
+    final class BusySpinWaitStrategy implements WaitStrategy {
+        private BusySpinWaitStrategy() {
+        }
+
+        @Override
+        public long waitFor(long sequence, AtomicLong cursor, BooleanSupplier stopped) {
+            long available;
+            while ((available = cursor.get()) < sequence && !stopped.getAsBoolean())
+                Thread.onSpinWait();
+            return available;
+        }
+
+        @Override
+        public void signalAllWhenBlocking() {
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package java_projects.demo.repository;
+
+public class BulkInsertReport {
+    private final int insertedMessages;
+    private final int compressedMessages;
+    private final long elapsedNanos;
+
+    /**
+     * Constructor for the summary of a bulk insert of messages
+     *
+     * @param insertedMessages   - int - the number of messages written
+     * @param compressedMessages - int - the number of messages whose bodies were stored compressed
+     * @param elapsedNanos       - long - how long the whole insert took
+     */
+    public BulkInsertReport(int insertedMessages, int compressedMessages, long elapsedNanos) {
+        this.insertedMessages = insertedMessages;
+        this.compressedMessages = compressedMessages;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getInsertedMessages() {
+        return insertedMessages;
+    }
+
+    public int getCompressedMessages() {
+        return compressedMessages;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Returns the throughput of the insert
+     *
+     * @return double - messages per second
+     */
+    public double getMessagesPerSecond() {
+        if (elapsedNanos == 0)
+            return 0;
+        return insertedMessages * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkInsertReport{" +
+                "insertedMessages=" + insertedMessages +
+                ", compressedMessages=" + compressedMessages +
+                ", elapsedMillis=" + elapsedNanos / 1_000_000 +
+                ", messagesPerSecond=" + String.format("%.1f", getMessagesPerSecond()) +
+                '}';
+    }
+}
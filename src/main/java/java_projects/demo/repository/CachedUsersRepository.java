@@ -0,0 +1,244 @@
+package java_projects.demo.repository;
+
+import java_projects.demo.domain.User;
+import java_projects.demo.domain.UserProfile;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A read-through cache in front of a users repository. Users are kept in least recently used order; the eldest one
+ * is dropped when the cache is full and every user is loaded again after the time to live. Usernames that don't
+ * exist are cached too, so checking if a username is free doesn't reach the database every time.
+ * Every change made through this repository invalidates the cached user, changes made by other applications are
+ * seen after at most the time to live
+ */
+public class CachedUsersRepository implements IUsersRepository {
+    public static final int DEFAULT_MAXIMUM_SIZE = 1_000;
+    public static final long DEFAULT_TIME_TO_LIVE_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * The profile loaded for a username, null if there is no such user
+     */
+    private static final class CacheEntry {
+        private final UserProfile profile;
+        private final long loadedAtNanos;
+
+        private CacheEntry(UserProfile profile, long loadedAtNanos) {
+            this.profile = profile;
+            this.loadedAtNanos = loadedAtNanos;
+        }
+    }
+
+    private final IUsersRepository usersRepository;
+    private final long timeToLiveNanos;
+    private final LinkedHashMap<String, CacheEntry> entries;
+    // changed by every invalidation, so a load that raced with a change is not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Constructor for a cache with the default size and time to live
+     *
+     * @param usersRepository - IUsersRepository - the repository the users are loaded from
+     */
+    public CachedUsersRepository(IUsersRepository usersRepository) {
+        this(usersRepository, DEFAULT_MAXIMUM_SIZE, DEFAULT_TIME_TO_LIVE_MILLIS);
+    }
+
+    /**
+     * Constructor for a cache of users
+     *
+     * @param usersRepository  - IUsersRepository - the repository the users are loaded from
+     * @param maximumSize      - int - how many usernames are kept at most; must be positive
+     * @param timeToLiveMillis - long - how long a loaded user is used before it is loaded again; must be positive
+     */
+    public CachedUsersRepository(IUsersRepository usersRepository, int maximumSize, long timeToLiveMillis) {
+        if (maximumSize <= 0)
+            throw new IllegalArgumentException("The size of the cache must be positive!");
+        if (timeToLiveMillis <= 0)
+            throw new IllegalArgumentException("The time to live must be positive!");
+        this.usersRepository = usersRepository;
+        this.timeToLiveNanos = TimeUnit.MILLISECONDS.toNanos(timeToLiveMillis);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                if (size() <= maximumSize)
+                    return false;
+                evictions.incrementAndGet();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached profile of the user, loading it if it is missing or too old
+     *
+     * @param username - String
+     * @return UserProfile - null if there is no user with given username
+     */
+    private UserProfile getProfile(String username) {
+        if (username == null)
+            throw new IllegalArgumentException("The username must be not null!");
+
+        long now = System.nanoTime();
+        synchronized (entries) {
+            CacheEntry entry = entries.get(username);
+            if (entry != null) {
+                if (now - entry.loadedAtNanos < timeToLiveNanos) {
+                    hits.incrementAndGet();
+                    return entry.profile;
+                }
+                entries.remove(username);
+                evictions.incrementAndGet();
+            }
+        }
+
+        misses.incrementAndGet();
+        long loadGeneration = generation.get();
+        UserProfile profile = usersRepository.getUserProfileById(username);
+        synchronized (entries) {
+            if (generation.get() == loadGeneration)
+                entries.put(username, new CacheEntry(profile, now));
+        }
+        return profile;
+    }
+
+    /**
+     * Drops the cached user after it was changed
+     *
+     * @param username - String
+     */
+    public void invalidate(String username) {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            entries.remove(username);
+        }
+    }
+
+    /**
+     * Drops all cached users
+     */
+    public void invalidateAll() {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            entries.clear();
+        }
+    }
+
+    // the cached profile is shared, so callers get their own copy they are free to change
+    private static User copyUser(UserProfile profile) {
+        return new User(profile.getUsername(), profile.getPassword(), profile.getFirstName(), profile.getLastName(),
+                profile.getEmail(), profile.getGender());
+    }
+
+    private static UserProfile copyProfile(UserProfile profile) {
+        return new UserProfile(profile.getUsername(), profile.getPassword(), profile.getFirstName(),
+                profile.getLastName(), profile.getEmail(), profile.getGender(), profile.getDescription(),
+                profile.getProfilePicturePath());
+    }
+
+    @Override
+    public User findById(String username) {
+        UserProfile profile = getProfile(username);
+        return profile == null ? null : copyUser(profile);
+    }
+
+    @Override
+    public UserProfile getUserProfileById(String username) {
+        UserProfile profile = getProfile(username);
+        return profile == null ? null : copyProfile(profile);
+    }
+
+    @Override
+    public Iterable<User> findAll() {
+        return usersRepository.findAll();
+    }
+
+    @Override
+    public User add(User user) {
+        // the repository tells if the username is taken with a single insert, so the cache isn't checked first; a
+        // cached absence of the user is wrong either way afterwards
+        try {
+            return usersRepository.add(user);
+        } finally {
+            invalidate(user.getId());
+        }
+    }
+
+    @Override
+    public void remove(String username) {
+        try {
+            usersRepository.remove(username);
+        } finally {
+            invalidate(username);
+        }
+    }
+
+    @Override
+    public void updateEntity(String username, User entity) {
+        try {
+            usersRepository.updateEntity(username, entity);
+        } finally {
+            invalidate(username);
+            invalidate(entity.getId());
+        }
+    }
+
+    @Override
+    public boolean availableId(String username) {
+        return getProfile(username) == null;
+    }
+
+    @Override
+    public int size() {
+        return usersRepository.size();
+    }
+
+    @Override
+    public void updateDescription(String newDescription, String username) {
+        try {
+            usersRepository.updateDescription(newDescription, username);
+        } finally {
+            invalidate(username);
+        }
+    }
+
+    @Override
+    public void changeProfilePicturePath(String newPath, String username) {
+        try {
+            usersRepository.changeProfilePicturePath(newPath, username);
+        } finally {
+            invalidate(username);
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Returns how many users were dropped because the cache was full or they were too old; invalidations are not
+     * counted
+     *
+     * @return long
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    public int getCachedUsers() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package java_projects.demo.repository;
+
+import java_projects.demo.database.QueryRunner;
+import java_projects.demo.domain.Message;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the conversations table in step with the messages table. Every method must run in the transaction that
+ * changes the messages, so the summary of a conversation never disagrees with its messages
+ */
+class ConversationSummaryStore {
+    private static final String NEWER_THAN_LAST = "(lastMessageMoment, lastMessageId) < (?, ?)";
+    private static final String UPDATE = "Update conversations set " +
+            "lastMessageId = case when " + NEWER_THAN_LAST + " then ? else lastMessageId end, " +
+            "lastMessageMoment = case when " + NEWER_THAN_LAST + " then ? else lastMessageMoment end, " +
+            "unreadByUser1 = unreadByUser1 + ?, unreadByUser2 = unreadByUser2 + ? " +
+            "where user1 = ? and user2 = ?";
+    private static final String INSERT = "Insert into conversations(user1, user2, lastMessageId, lastMessageMoment, " +
+            "unreadByUser1, unreadByUser2) values (?, ?, ?, ?, ?, ?) on conflict do nothing";
+    private static final String DECREMENT_UNREAD = "Update conversations set " +
+            "unreadByUser1 = greatest(unreadByUser1 - ?, 0), unreadByUser2 = greatest(unreadByUser2 - ?, 0) " +
+            "where user1 = ? and user2 = ?";
+    private static final String FIND_LAST_MESSAGE_ID = "Select lastMessageId from conversations " +
+            "where user1 = ? and user2 = ?";
+    private static final String FIND_NEWEST_MESSAGE = "Select m.idMessage, m.messageMoment from messages m " +
+            MessagesRepository.CONVERSATION_OF_PAIR +
+            "order by m.messageMoment desc, m.idMessage desc limit 1";
+    private static final String SET_LAST_MESSAGE = "Update conversations set " +
+            "lastMessageId = ?, lastMessageMoment = ? where user1 = ? and user2 = ?";
+    private static final String DELETE = "DELETE FROM conversations WHERE user1 = ? and user2 = ?";
+
+    /**
+     * Returns true if username comes first in the key of its conversation with otherUsername. A user writing to
+     * themselves is the first user, so adding and seeing their messages change the same unread count
+     *
+     * @param username      - String
+     * @param otherUsername - String
+     * @return boolean
+     */
+    static boolean isFirstUser(String username, String otherUsername) {
+        return username.compareTo(otherUsername) <= 0;
+    }
+
+    /**
+     * The changes that a group of new messages makes to the summary of one conversation
+     */
+    private static class SummaryChange {
+        private final String user1;
+        private final String user2;
+        private Message lastMessage;
+        private int unreadByUser1 = 0;
+        private int unreadByUser2 = 0;
+
+        private SummaryChange(String user1, String user2) {
+            this.user1 = user1;
+            this.user2 = user2;
+        }
+
+        private void add(Message message) {
+            if (!message.isSeen()) {
+                if (message.getReceiver().equals(user1))
+                    unreadByUser1++;
+                else
+                    unreadByUser2++;
+            }
+            if (lastMessage == null || isNewer(message, lastMessage))
+                lastMessage = message;
+        }
+
+        private static boolean isNewer(Message message, Message other) {
+            int comparison = message.getMessageTime().compareTo(other.getMessageTime());
+            return comparison > 0 || (comparison == 0 && message.getId() > other.getId());
+        }
+    }
+
+    /**
+     * Updates the summaries of the conversations that received new messages
+     *
+     * @param transaction - QueryRunner - bound to the transaction that inserts the messages
+     * @param messages    - Collection < Message > - the new messages
+     */
+    void recordNewMessages(QueryRunner transaction, Collection<Message> messages) {
+        Map<String, SummaryChange> changes = new LinkedHashMap<>();
+        for (Message message : messages) {
+            boolean senderFirst = isFirstUser(message.getSender(), message.getReceiver());
+            String user1 = senderFirst ? message.getSender() : message.getReceiver();
+            String user2 = senderFirst ? message.getReceiver() : message.getSender();
+            changes.computeIfAbsent(user1 + '\u0000' + user2, key -> new SummaryChange(user1, user2)).add(message);
+        }
+
+        for (SummaryChange change : changes.values())
+            apply(transaction, change);
+    }
+
+    private void apply(QueryRunner transaction, SummaryChange change) {
+        Long lastId = change.lastMessage.getId();
+        LocalDateTime lastMoment = change.lastMessage.getMessageTime();
+
+        Object[] updateParameters = {
+                lastMoment, lastId, lastId,
+                lastMoment, lastId, lastMoment,
+                change.unreadByUser1, change.unreadByUser2, change.user1, change.user2};
+        if (transaction.update(UPDATE, updateParameters) > 0)
+            return;
+
+        int inserted = transaction.update(INSERT, change.user1, change.user2, lastId, lastMoment,
+                change.unreadByUser1, change.unreadByUser2);
+        // another transaction created the summary after our update; add our changes to it
+        if (inserted == 0)
+            transaction.update(UPDATE, updateParameters);
+    }
+
+    /**
+     * Lowers the unread count of the receiver after messages were seen
+     *
+     * @param transaction - QueryRunner - bound to the transaction that marks the messages as seen
+     * @param sender      - String - the sender of the seen messages
+     * @param receiver    - String - the receiver of the seen messages, who has seen them
+     * @param seenCount   - int - how many messages were seen
+     */
+    void recordSeen(QueryRunner transaction, String sender, String receiver, int seenCount) {
+        if (seenCount == 0)
+            return;
+        boolean receiverFirst = isFirstUser(receiver, sender);
+        transaction.update(DECREMENT_UNREAD, receiverFirst ? seenCount : 0, receiverFirst ? 0 : seenCount,
+                receiverFirst ? receiver : sender, receiverFirst ? sender : receiver);
+    }
+
+    /**
+     * Updates the summary of a conversation after one of its messages was deleted
+     *
+     * @param transaction - QueryRunner - bound to the transaction that deletes the message
+     * @param removed     - Message - the deleted message
+     */
+    void recordRemoved(QueryRunner transaction, Message removed) {
+        String sender = removed.getSender();
+        String receiver = removed.getReceiver();
+        if (!removed.isSeen())
+            recordSeen(transaction, sender, receiver, 1);
+
+        boolean senderFirst = isFirstUser(sender, receiver);
+        String user1 = senderFirst ? sender : receiver;
+        String user2 = senderFirst ? receiver : sender;
+        Long lastMessageId = transaction.queryForObject(FIND_LAST_MESSAGE_ID, resultSet -> resultSet.getLong(1),
+                user1, user2);
+        if (lastMessageId == null || !lastMessageId.equals(removed.getId()))
+            return;
+
+        Object[] newest = transaction.queryForObject(FIND_NEWEST_MESSAGE, resultSet -> new Object[]{
+                resultSet.getLong("idMessage"), resultSet.getObject("messageMoment", LocalDateTime.class)},
+                user1, user2, user1, user2);
+        if (newest == null)
+            transaction.update(DELETE, user1, user2);
+        else
+            transaction.update(SET_LAST_MESSAGE, newest[0], newest[1], user1, user2);
+    }
+}
@@ -0,0 +1,20 @@
+package java_projects.demo.repository;
+
+import java_projects.demo.domain.Friendship;
+
+public interface FriendshipsListener {
+    /**
+     * Called after a friendship or a friend request was saved in the database
+     *
+     * @param friendship - Friendship - the saved friendship
+     */
+    void friendshipAdded(Friendship friendship);
+
+    /**
+     * Called after a friendship or a friend request was deleted from the database
+     *
+     * @param username1 - String - one of the users
+     * @param username2 - String - the other user
+     */
+    void friendshipRemoved(String username1, String username2);
+}
@@ -1,24 +1,36 @@
 package java_projects.demo.repository;
 
+import java_projects.demo.database.ConnectionPool;
+import java_projects.demo.database.QueryRunner;
+import java_projects.demo.database.RowCounter;
 import java_projects.demo.domain.Friendship;
-import java_projects.demo.utils.DataTypeConvertors;
+import java_projects.demo.domain.FriendshipKey;
 
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.PreparedStatement;
 import java.sql.ResultSet;
-import java.time.LocalDate;
+import java.sql.SQLException;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
-import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
-import static java.lang.Math.min;
+public class FriendshipsRepository implements IRepository<FriendshipKey, Friendship> {
 
-public class FriendshipsRepository implements IRepository<ArrayList<String>, Friendship> {
+    private static final String FIND_BY_ID = "Select * from Friendships where idFriend1 = ? and idFriend2 = ?";
+    private static final String FIND_ALL = "Select * from Friendships";
+    private static final String INSERT = "Insert into Friendships(idFriend1, idFriend2, friendshipMoment, isPending, " +
+            "isFromFirstFriend) values (?, ?, ?, ?, ?) on conflict (idFriend1, idFriend2) do nothing";
+    // how many times add inserts again after the existing friendship was deleted before it could be loaded
+    private static final int MAXIMUM_ADD_ATTEMPTS = 3;
+    private static final String UPDATE = "Update Friendships set idFriend1 = ?, idFriend2 = ?, friendshipMoment = ?, " +
+            "isPending = ?, isFromFirstFriend = ? where idFriend1 = ? and idFriend2 = ?";
+    private static final String DELETE = "DELETE FROM Friendships WHERE idFriend1 = ? and idFriend2 = ?";
+    private static final String COUNT = "Select count(*) from Friendships";
+    private static final String FRIENDS_OF_USER = friendshipsOfUser("not f.isPending", "not f.isPending");
+    private static final String REQUESTS_OF_USER = friendshipsOfUser("f.isPending and f.isFromFirstFriend = ?",
+            "f.isPending and f.isFromFirstFriend = ?");
 
-    String url;
-    String username;
-    String password;
+    private final QueryRunner queryRunner;
+    private final RowCounter rowCounter;
+    private final List<FriendshipsListener> listeners = new CopyOnWriteArrayList<>();
 
     /**
      * Constructor for repository manager
@@ -28,102 +40,46 @@ public class FriendshipsRepository implements IRepository<ArrayList<String>, Fri
      * @param password - String - the password to connect to the database
      */
     public FriendshipsRepository(String url, String username, String password) {
-        this.url = url;
-        this.username = username;
-        this.password = password;
+        this(new ConnectionPool(url, username, password));
     }
 
     /**
-     * A method that parse resultSet into friendship parameters
-     *
-     * @param resultSet - ResultSet - the ResultSet we parse
-     * @return - Friendship Object - the friendship obtained
-     * @throws Exception - if resultSet is null
-     */
-    private Friendship getFriendshipFromResult(ResultSet resultSet) throws Exception {
-        String idFriend1 = resultSet.getString("idFriend1");
-        String idFriend2 = resultSet.getString("idFriend2");
-        LocalDate friendshipStartingDate = LocalDate.parse(resultSet.getString("friendshipdate"));
-        LocalTime friendshipStartingTime = LocalTime.parse(resultSet.getString("friendshiptime"));
-        LocalDateTime friendshipStartingMoment = LocalDateTime.of(friendshipStartingDate, friendshipStartingTime);
-        boolean isPending = resultSet.getBoolean("isPending");
-        boolean isFromFirstFriend = resultSet.getBoolean("isFromFirstFriend");
-        return new Friendship(idFriend1, idFriend2, friendshipStartingMoment, isPending, isFromFirstFriend);
-    }
-
-    /**
-     * Returns the friendship generated by the sqlQuery from database
+     * Constructor for repository manager that shares a pool of connections to the database
      *
-     * @param sqlQuery - String
-     * @return Friendship
+     * @param connectionPool - ConnectionPool - the pool the connections are borrowed from
      */
-    private Friendship getFriendshipGeneratedByQuery(String sqlQuery) {
-        try (Connection connection = DriverManager.getConnection(this.url, this.username, this.password)) {
-            PreparedStatement statement = connection.prepareStatement(sqlQuery);
-            ResultSet resultSet = statement.executeQuery();
-            if (resultSet.next())
-                return getFriendshipFromResult(resultSet);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
-        return null;
+    public FriendshipsRepository(ConnectionPool connectionPool) {
+        this.queryRunner = new QueryRunner(connectionPool);
+        this.rowCounter = connectionPool.getRowCounter(COUNT);
     }
 
     /**
-     * Returns all friendships generated by the sqlQuery from database
+     * Registers a listener that is told about every friendship added or removed through this repository
      *
-     * @param sqlQuery - String
-     * @return ArrayList<Friendship>
+     * @param listener - FriendshipsListener
      */
-    private ArrayList<Friendship> getAllFriendshipsGeneratedByQuery(String sqlQuery) {
-        ArrayList<Friendship> friendships = new ArrayList<>();
-        try (Connection connection = DriverManager.getConnection(url, username, password)) {
-            PreparedStatement statement = connection.prepareStatement(sqlQuery);
-            ResultSet resultSet = statement.executeQuery();
-
-            while (resultSet.next())
-                friendships.add(getFriendshipFromResult(resultSet));
-
-            return friendships;
-
-        } catch (Exception e) {
-            throw new RuntimeException(e.getMessage());
-        }
+    public void addListener(FriendshipsListener listener) {
+        listeners.add(listener);
     }
 
-
-    /**
-     * A method that execute a specific query on database, ignoring the result
-     *
-     * @param sqlQuery - String
-     */
-    private void executeQuery(String sqlQuery) {
-        try (Connection connection = DriverManager.getConnection(this.url, this.username, this.password)) {
-            PreparedStatement statement = connection.prepareStatement(sqlQuery);
-            statement.executeQuery();
-        } catch (Exception e) {
-            if (!e.getMessage().contains("No results were returned by the query"))
-                throw new RuntimeException(e);
-        }
+    public void removeListener(FriendshipsListener listener) {
+        listeners.remove(listener);
     }
 
     /**
-     * Sorts the array of usernames
+     * A method that parse resultSet into friendship parameters
      *
-     * @param friendshipUsernames - the usernames
+     * @param resultSet - ResultSet - the ResultSet we parse
+     * @return - Friendship Object - the friendship obtained
+     * @throws SQLException - if the fields of the friendship are not found in db
      */
-    private static void sortArray(ArrayList<String> friendshipUsernames) {
-        friendshipUsernames.sort((string1, string2) -> {
-            int minLength = min(string1.length(), string2.length());
-            for (int i = 0; i < minLength; i++) {
-                int chr1 = (int) string1.charAt(i);
-                int chr2 = (int) string2.charAt(i);
-
-                if (chr1 != chr2)
-                    return chr1 - chr2;
-            }
-            return string1.length() - string2.length();
-        });
+    private Friendship getFriendshipFromResult(ResultSet resultSet) throws SQLException {
+        String idFriend1 = resultSet.getString("idFriend1");
+        String idFriend2 = resultSet.getString("idFriend2");
+        LocalDateTime friendshipStartingMoment = resultSet.getObject("friendshipMoment", LocalDateTime.class);
+        boolean isPending = resultSet.getBoolean("isPending");
+        boolean isFromFirstFriend = resultSet.getBoolean("isFromFirstFriend");
+        return new Friendship(idFriend1, idFriend2, friendshipStartingMoment, isPending, isFromFirstFriend);
     }
 
     /**
@@ -133,13 +89,9 @@ public class FriendshipsRepository implements IRepository<ArrayList<String>, Fri
      * @return - Friendship - the wanted friendship
      */
     @Override
-    public Friendship findById(ArrayList<String> friendshipUsernames) {
-        sortArray(friendshipUsernames);
-        String idFriend1 = friendshipUsernames.get(0);
-        String idFriend2 = friendshipUsernames.get(1);
-        String sqlQuery = "Select * from Friendships F where F.idFriend1 = '" + idFriend1 + "' and F.idFriend2= '"
-                + idFriend2 + "'";
-        return getFriendshipGeneratedByQuery(sqlQuery);
+    public Friendship findById(FriendshipKey friendshipUsernames) {
+        return queryRunner.queryForObject(FIND_BY_ID, this::getFriendshipFromResult,
+                friendshipUsernames.getUser1(), friendshipUsernames.getUser2());
     }
 
     /**
@@ -149,24 +101,7 @@ public class FriendshipsRepository implements IRepository<ArrayList<String>, Fri
      */
     @Override
     public Iterable<Friendship> findAll() {
-        String sqlQuery = "Select * from Friendships";
-        return getAllFriendshipsGeneratedByQuery(sqlQuery);
-    }
-
-    /**
-     * A method that returns the query for inserting a new friendship in the database
-     *
-     * @param friendship - Friendship
-     * @return - String - the sqlQuery
-     */
-    private String prepareQueryForAddFriendship(Friendship friendship) {
-        ArrayList<String> friends = friendship.getId();
-        sortArray(friends);
-        String date = DataTypeConvertors.getDateStringFromDateTime(friendship.getFriendshipMoment());
-        String time = DataTypeConvertors.getCompressedTimeStringFromDateTime(friendship.getFriendshipMoment());
-
-        return "Insert into Friendships values ('" + friends.get(0) + "','" + friends.get(1) + "','"
-                + date + "','" + time + "'," + friendship.getIsPending() + "," + friendship.isFromFirstFriend() + ");";
+        return queryRunner.queryForList(FIND_ALL, this::getFriendshipFromResult);
     }
 
     /**
@@ -177,51 +112,58 @@ public class FriendshipsRepository implements IRepository<ArrayList<String>, Fri
      */
     @Override
     public Friendship add(Friendship entity) {
-        Friendship candidate = this.findById(entity.getId());
-        if (candidate != null)
-            return candidate;
-
-        String sqlQuery = prepareQueryForAddFriendship(entity);
-        executeQuery(sqlQuery);
-        return null;
-    }
-
-    /**
-     * Creates the string with sqlQuery that remove the friendship between users from friendshipUsers
-     *
-     * @param friendshipUsers - the usernames of the users
-     * @return String
-     */
-    private String prepareQueryForRemoveFriendship(ArrayList<String> friendshipUsers) {
-        sortArray(friendshipUsers);
-        return "DELETE FROM Friendships WHERE idFriend1 = '" +
-                friendshipUsers.get(0) + "' and idFriend2 = '" + friendshipUsers.get(1) + "';";
+        FriendshipKey friends = entity.getId();
+        for (int attempt = 0; attempt < MAXIMUM_ADD_ATTEMPTS; attempt++) {
+            int inserted = queryRunner.update(INSERT, friends.getUser1(), friends.getUser2(),
+                    entity.getFriendshipMoment(), entity.getIsPending(), entity.isFromFirstFriend());
+            if (inserted > 0) {
+                rowCounter.add(inserted);
+                for (FriendshipsListener listener : listeners)
+                    listener.friendshipAdded(entity);
+                return null;
+            }
+            // the friendship exists; it is loaded only now, and tried again if it was deleted in the meantime
+            Friendship candidate = this.findById(friends);
+            if (candidate != null)
+                return candidate;
+        }
+        throw new RuntimeException("The friendship " + friends.getUser1() + " - " + friends.getUser2() +
+                " could not be added!");
     }
 
     /**
      * Remove the friendship with chosen id
      *
-     * @param friendshipId - ArrayList <String> - the id we want to delete
+     * @param friendshipId - FriendshipKey - the id we want to delete
      */
     @Override
-    public void remove(ArrayList<String> friendshipId) {
-        Friendship candidate = this.findById(friendshipId);
-        if (candidate == null)
+    public void remove(FriendshipKey friendshipId) {
+        int deleted = queryRunner.update(DELETE, friendshipId.getUser1(), friendshipId.getUser2());
+        if (deleted == 0)
             throw new RuntimeException("There is no friendship with chosen index! ");
-        String sqlQuery = prepareQueryForRemoveFriendship(friendshipId);
-        executeQuery(sqlQuery);
+        rowCounter.add(-deleted);
+        for (FriendshipsListener listener : listeners)
+            listener.friendshipRemoved(friendshipId.getUser1(), friendshipId.getUser2());
     }
 
     /**
-     * Update the friendship with chosen id
+     * Update the friendship with chosen id, in a single statement
      *
      * @param id         the id of the entity we update
      * @param friendship the new entity
      */
     @Override
-    public void updateEntity(ArrayList<String> id, Friendship friendship) {
-        this.remove(id);
-        this.add(friendship);
+    public void updateEntity(FriendshipKey id, Friendship friendship) {
+        FriendshipKey friends = friendship.getId();
+        int updated = queryRunner.update(UPDATE, friends.getUser1(), friends.getUser2(),
+                friendship.getFriendshipMoment(), friendship.getIsPending(), friendship.isFromFirstFriend(),
+                id.getUser1(), id.getUser2());
+        if (updated == 0)
+            throw new RuntimeException("There is no friendship with chosen index! ");
+        for (FriendshipsListener listener : listeners) {
+            listener.friendshipRemoved(id.getUser1(), id.getUser2());
+            listener.friendshipAdded(friendship);
+        }
     }
 
     /**
@@ -231,10 +173,89 @@ public class FriendshipsRepository implements IRepository<ArrayList<String>, Fri
      * @return - boolean - true or false
      */
     @Override
-    public boolean availableId(ArrayList<String> candidateId) {
+    public boolean availableId(FriendshipKey candidateId) {
         return this.findById(candidateId) == null;
     }
 
+    /**
+     * Returns the text of a query for a page of the rows of one user, ordered by the other user. The user may be
+     * stored in either column, so the query reads one range from the index on idFriend1 and one from the index on
+     * idFriend2 and merges them. Its parameters are: the user, the parameters of the first condition, the other
+     * user of the previous page, the page size, the same again for the second column, and the page size
+     *
+     * @param conditionAsFirst  - String - the condition of the rows where the user is idFriend1
+     * @param conditionAsSecond - String - the condition of the rows where the user is idFriend2
+     * @return String
+     */
+    private static String friendshipsOfUser(String conditionAsFirst, String conditionAsSecond) {
+        return "Select * from (" +
+                "(select f.*, f.idFriend2 as otherFriend from Friendships f " +
+                "where f.idFriend1 = ? and " + conditionAsFirst + " and f.idFriend2 > ? " +
+                "order by f.idFriend2 limit ?) " +
+                "union all " +
+                "(select f.*, f.idFriend1 as otherFriend from Friendships f " +
+                "where f.idFriend2 = ? and " + conditionAsSecond + " and f.idFriend1 > ? " +
+                "order by f.idFriend1 limit ?)" +
+                ") f order by otherFriend limit ?";
+    }
+
+    private static void checkPageSize(int pageSize) {
+        if (pageSize <= 0)
+            throw new IllegalArgumentException("The size of a page must be positive!");
+    }
+
+    // every username is greater than the empty string, so the first page starts after it
+    private static String pageStart(String afterUsername) {
+        return afterUsername == null ? "" : afterUsername;
+    }
+
+    /**
+     * Returns a page of the accepted friendships of the user, ordered by the username of the friend
+     *
+     * @param username      - String - the user
+     * @param afterUsername - String - the friend on the last row of the previous page, null for the first page
+     * @param pageSize      - int - the maximum number of friendships returned
+     * @return List < Friendship >
+     */
+    public List<Friendship> findFriendsOf(String username, String afterUsername, int pageSize) {
+        checkPageSize(pageSize);
+        String after = pageStart(afterUsername);
+        return queryRunner.queryForList(FRIENDS_OF_USER, this::getFriendshipFromResult,
+                username, after, pageSize, username, after, pageSize, pageSize);
+    }
+
+    /**
+     * Returns a page of the pending friend requests sent to the user, ordered by the username of the sender
+     *
+     * @param username      - String - the receiver of the requests
+     * @param afterUsername - String - the sender on the last row of the previous page, null for the first page
+     * @param pageSize      - int - the maximum number of requests returned
+     * @return List < Friendship >
+     */
+    public List<Friendship> findIncomingRequests(String username, String afterUsername, int pageSize) {
+        return findRequests(username, false, afterUsername, pageSize);
+    }
+
+    /**
+     * Returns a page of the pending friend requests sent by the user, ordered by the username of the receiver
+     *
+     * @param username      - String - the sender of the requests
+     * @param afterUsername - String - the receiver on the last row of the previous page, null for the first page
+     * @param pageSize      - int - the maximum number of requests returned
+     * @return List < Friendship >
+     */
+    public List<Friendship> findOutgoingRequests(String username, String afterUsername, int pageSize) {
+        return findRequests(username, true, afterUsername, pageSize);
+    }
+
+    private List<Friendship> findRequests(String username, boolean sentByUser, String afterUsername, int pageSize) {
+        checkPageSize(pageSize);
+        String after = pageStart(afterUsername);
+        // when the user is idFriend1 they sent the request if it is from the first friend, and the other way around
+        return queryRunner.queryForList(REQUESTS_OF_USER, this::getFriendshipFromResult,
+                username, sentByUser, after, pageSize, username, !sentByUser, after, pageSize, pageSize);
+    }
+
     /**
      * Return the number of friendship from database
      *
@@ -242,16 +263,6 @@ public class FriendshipsRepository implements IRepository<ArrayList<String>, Fri
      */
     @Override
     public int size() {
-        String sqlQuery = "Select count(idFriend1) from Friendships";
-        try (Connection connection = DriverManager.getConnection(url, username, password)) {
-            PreparedStatement statement = connection.prepareStatement(sqlQuery);
-
-            ResultSet resultSet = statement.executeQuery();
-            resultSet.next();
-            return Integer.parseInt(resultSet.getString("count"));
-
-        } catch (Exception e) {
-            throw new RuntimeException(e.getMessage());
-        }
+        return rowCounter.get();
     }
 }
@@ -0,0 +1,27 @@
+package java_projects.demo.repository;
+
+import java_projects.demo.domain.User;
+import java_projects.demo.domain.UserProfile;
+
+public interface IUsersRepository extends IRepository<String, User> {
+    /**
+     * Returns the profile of the user with the chosen username
+     * @param username - String - must be not null
+     * @return UserProfile - null if there is no user with the chosen username
+     */
+    UserProfile getUserProfileById(String username);
+
+    /**
+     * Changes the self-description of a user
+     * @param newDescription - String - the new description
+     * @param username - String - the username of the user
+     */
+    void updateDescription(String newDescription, String username);
+
+    /**
+     * Changes the path to the profile picture of a user
+     * @param newPath - String - the new path
+     * @param username - String - the username of the user
+     */
+    void changeProfilePicturePath(String newPath, String username);
+}
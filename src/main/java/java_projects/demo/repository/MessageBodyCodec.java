@@ -0,0 +1,137 @@
+package java_projects.demo.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Encodes the body of a message for the body column of messages: the UTF-8 bytes of the text, compressed with a
+ * Deflater when they are at least as long as the threshold and compressing makes them smaller. The codec of every
+ * body is stored in the bodyCodec column, so bodies written with any threshold can be read back
+ */
+final class MessageBodyCodec {
+    static final short PLAIN = 0;
+    static final short DEFLATE = 1;
+
+    // a Deflater or Inflater holds native memory, so a few of them are reused by all threads instead of creating one
+    // for every thread
+    private static final int MAXIMUM_POOLED = 16;
+    private static final BlockingQueue<Deflater> DEFLATERS = new ArrayBlockingQueue<>(MAXIMUM_POOLED);
+    private static final BlockingQueue<Inflater> INFLATERS = new ArrayBlockingQueue<>(MAXIMUM_POOLED);
+
+    /**
+     * The stored form of a body
+     */
+    static final class EncodedBody {
+        private final byte[] bytes;
+        private final short codec;
+
+        private EncodedBody(byte[] bytes, short codec) {
+            this.bytes = bytes;
+            this.codec = codec;
+        }
+
+        byte[] getBytes() {
+            return bytes;
+        }
+
+        short getCodec() {
+            return codec;
+        }
+
+        boolean isCompressed() {
+            return codec == DEFLATE;
+        }
+    }
+
+    private MessageBodyCodec() {
+    }
+
+    /**
+     * Encodes the body of a message
+     *
+     * @param body                 - String - the text of the message
+     * @param compressionThreshold - int - the smallest number of bytes that is compressed
+     * @return EncodedBody
+     */
+    static EncodedBody encode(String body, int compressionThreshold) {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length < compressionThreshold)
+            return new EncodedBody(bytes, PLAIN);
+
+        byte[] compressed = deflate(bytes);
+        if (compressed == null)
+            return new EncodedBody(bytes, PLAIN);
+        return new EncodedBody(compressed, DEFLATE);
+    }
+
+    /**
+     * Decodes a stored body
+     *
+     * @param bytes - byte[] - the content of the body column; null is read as an empty body
+     * @param codec - short - the content of the bodyCodec column
+     * @return String
+     */
+    static String decode(byte[] bytes, short codec) {
+        if (bytes == null)
+            return "";
+        if (codec == PLAIN)
+            return new String(bytes, StandardCharsets.UTF_8);
+        if (codec == DEFLATE)
+            return new String(inflate(bytes), StandardCharsets.UTF_8);
+        throw new IllegalArgumentException("Unknown codec of a message body: " + codec + "!");
+    }
+
+    /**
+     * Returns the compressed bytes, or null if they are not smaller than the bytes
+     */
+    private static byte[] deflate(byte[] bytes) {
+        // the fastest level keeps most of the saving on chat text and writes several times faster than the default
+        Deflater deflater = DEFLATERS.poll();
+        if (deflater == null)
+            deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            byte[] compressed = new byte[bytes.length];
+            int length = 0;
+            while (!deflater.finished() && length < compressed.length)
+                length += deflater.deflate(compressed, length, compressed.length - length);
+            return deflater.finished() && length < bytes.length ? Arrays.copyOf(compressed, length) : null;
+        } finally {
+            deflater.reset();
+            if (!DEFLATERS.offer(deflater))
+                deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] compressed) {
+        Inflater inflater = INFLATERS.poll();
+        if (inflater == null)
+            inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] bytes = new byte[Math.max(64, compressed.length * 4)];
+            int length = 0;
+            while (!inflater.finished()) {
+                if (length == bytes.length)
+                    bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                int inflated = inflater.inflate(bytes, length, bytes.length - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    throw new RuntimeException("The compressed body of a message is incomplete!");
+                length += inflated;
+            }
+            return Arrays.copyOf(bytes, length);
+        } catch (DataFormatException e) {
+            throw new RuntimeException(e);
+        } finally {
+            inflater.reset();
+            if (!INFLATERS.offer(inflater))
+                inflater.end();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package java_projects.demo.repository;
+
+import java_projects.demo.domain.Message;
+
+import java.time.LocalDateTime;
+
+public class MessageCursor {
+    private final LocalDateTime messageTime;
+    private final long idMessage;
+
+    /**
+     * Constructor for the position of a message in a conversation
+     *
+     * @param messageTime - LocalDateTime - the moment the message was sent
+     * @param idMessage   - long - the id of the message, used when two messages have the same moment
+     */
+    public MessageCursor(LocalDateTime messageTime, long idMessage) {
+        this.messageTime = messageTime;
+        this.idMessage = idMessage;
+    }
+
+    /**
+     * Returns the position of a loaded message. Used to ask for the messages older than it
+     *
+     * @param message - Message - usually the oldest message of the last page
+     * @return MessageCursor
+     */
+    public static MessageCursor of(Message message) {
+        return new MessageCursor(message.getMessageTime(), message.getId());
+    }
+
+    public LocalDateTime getMessageTime() {
+        return messageTime;
+    }
+
+    public long getIdMessage() {
+        return idMessage;
+    }
+}
@@ -0,0 +1,56 @@
+package java_projects.demo.repository;
+
+import java_projects.demo.domain.Message;
+
+import java.time.LocalDateTime;
+
+public interface MessagesListener {
+    /**
+     * Called after a message was saved in the database
+     *
+     * @param message - Message - the saved message
+     */
+    void messageAdded(Message message);
+
+    /**
+     * Called after a message was replaced in the database
+     *
+     * @param previous - Message - the message before the update, without its content
+     * @param message  - Message - the saved message
+     */
+    void messageUpdated(Message previous, Message message);
+
+    /**
+     * Called after a message was deleted from the database
+     *
+     * @param message - Message - the deleted message, without its content
+     */
+    void messageRemoved(Message message);
+
+    /**
+     * Called after the messages of a sender to a receiver were marked as received
+     *
+     * @param sender   - String
+     * @param receiver - String
+     * @param upTo     - LocalDateTime - the messages sent up to this moment are received
+     */
+    void messagesReceived(String sender, String receiver, LocalDateTime upTo);
+
+    /**
+     * Called after a message was marked as seen
+     *
+     * @param message - Message - the seen message, without its content
+     */
+    void messageSeen(Message message);
+
+    /**
+     * Called after the messages of a sender to a receiver were marked as seen by a ReceiptWriter
+     *
+     * @param sender    - String
+     * @param receiver  - String
+     * @param upTo      - LocalDateTime - the moment of the newest seen message
+     * @param upToId    - Long - the id of the newest seen message; the older messages are seen too
+     * @param seenCount - int - how many messages were not seen before
+     */
+    void messagesSeen(String sender, String receiver, LocalDateTime upTo, Long upToId, int seenCount);
+}
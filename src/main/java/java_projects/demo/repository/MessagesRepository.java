@@ -1,69 +1,200 @@
 package java_projects.demo.repository;
 
+import java_projects.demo.database.BlockIdAllocator;
+import java_projects.demo.database.ConnectionPool;
+import java_projects.demo.database.QueryRunner;
+import java_projects.demo.database.RowCounter;
+import java_projects.demo.domain.ConversationSummary;
 import java_projects.demo.domain.Message;
-import java_projects.demo.utils.DataTypeConvertors;
 
-import java.sql.*;
-import java.time.LocalDate;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class MessagesRepository implements IRepository<Long, Message> {
 
-    String url;
-    String username;
-    String password;
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final int DEFAULT_COMPRESSION_THRESHOLD = 512;
+    public static final int DEFAULT_PREVIEW_LENGTH = 100;
+
+    private static final String FIND_CONTENT = "Select body, bodyCodec from messages where idMessage = ?";
+    private static final String SELECT_MESSAGES = "Select m.* from messages m ";
+    // the list queries read the header and the preview of the messages, cut to the preview length, without the body
+    private static final String HEADER_COLUMNS = "m.idMessage, m.sender, m.receiver, m.messageMoment, m.seen, " +
+            "m.received, left(m.preview, ?) as preview ";
+    private static final String FIND_CONTENTS = "Select idMessage, body, bodyCodec from messages where idMessage in ";
+    private static final String FIND_BY_ID = SELECT_MESSAGES + "where m.idMessage = ?";
+    private static final String FIND_ALL = "Select " + HEADER_COLUMNS + "from messages m order by m.idMessage";
+    private static final String INSERT = "Insert into Messages(idmessage, sender, receiver, messageMoment, seen, " +
+            "received, body, bodyCodec, preview) values (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_IF_ABSENT = INSERT + " on conflict (idMessage) do nothing";
+    // how many times add inserts again after the existing message was deleted before it could be loaded
+    private static final int MAXIMUM_ADD_ATTEMPTS = 3;
+    private static final String UPDATE_CONTENT = "Update messages set body = ?, bodyCodec = ?, preview = ? " +
+            "where idMessage = ?";
+    private static final String UPDATE = "Update messages set idMessage = ?, sender = ?, receiver = ?, " +
+            "messageMoment = ?, seen = ?, received = ?, body = ?, bodyCodec = ?, preview = ? where idMessage = ?";
+    private static final String DELETE = "DELETE FROM messages WHERE idMessage = ?";
+    private static final String COUNT = "Select count(*) from messages";
+    private static final String ID_COUNTER = "messages";
+    private static final String FIRST_UNUSED_ID = "Select coalesce(max(idMessage), 0) + 1 from messages";
+    private static final String FIND_HEADER = "Select idMessage, sender, receiver, messageMoment, seen, received " +
+            "from messages where idMessage = ?";
+    private static final String CONVERSATIONS_OF_USER = "Select " + HEADER_COLUMNS + ", cv.user1, cv.unreadByUser1, " +
+            "cv.unreadByUser2 from conversations cv " +
+            "join messages m on m.idMessage = cv.lastMessageId " +
+            "where cv.user1 = ? or cv.user2 = ? " +
+            "order by cv.lastMessageMoment desc, cv.lastMessageId desc";
+    private static final String MESSAGES_BETWEEN_USERS = SELECT_MESSAGES +
+            "where m.sender in (?, ?) and m.receiver in (?, ?) " +
+            "order by m.messageMoment, m.idMessage";
+    // the messages m of a pair of users, in both directions, read from the conversation index; also used by
+    // ConversationSummaryStore
+    static final String CONVERSATION_OF_PAIR = "where least(m.sender, m.receiver) = " +
+            "least(cast(? as varchar), cast(? as varchar)) " +
+            "and greatest(m.sender, m.receiver) = greatest(cast(? as varchar), cast(? as varchar)) ";
+    private static final String CONVERSATION_PAGE_ORDER = "order by m.messageMoment desc, m.idMessage desc";
+    private static final String LATEST_MESSAGES_BETWEEN_USERS = SELECT_MESSAGES +
+            CONVERSATION_OF_PAIR +
+            CONVERSATION_PAGE_ORDER + " limit ?";
+    private static final String OLDER_MESSAGES_BETWEEN_USERS = SELECT_MESSAGES +
+            CONVERSATION_OF_PAIR +
+            "and (m.messageMoment, m.idMessage) < (?, ?) " +
+            CONVERSATION_PAGE_ORDER + " limit ?";
+    private static final String SET_RECEIVED = "Update messages set received = true " +
+            "where sender = ? and receiver = ? and messageMoment <= ? and received = false";
+    private static final String SET_SEEN = "Update messages set received = true, seen = true " +
+            "where idMessage = ? and seen = false";
+    private static final String SET_SEEN_UP_TO = "Update messages set received = true, seen = true " +
+            "where sender = ? and receiver = ? and seen = false and (messageMoment, idMessage) <= (?, ?)";
+
+    private final QueryRunner queryRunner;
+    private final ConversationSummaryStore conversationSummaryStore = new ConversationSummaryStore();
+    private final BlockIdAllocator idAllocator;
+    private final RowCounter rowCounter;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private volatile int compressionThreshold = DEFAULT_COMPRESSION_THRESHOLD;
+    private volatile int previewLength = DEFAULT_PREVIEW_LENGTH;
+    private final List<MessagesListener> listeners = new CopyOnWriteArrayList<>();
 
     public MessagesRepository(String url, String username, String password) {
-        this.url = url;
-        this.username = username;
-        this.password = password;
+        this(new ConnectionPool(url, username, password));
     }
 
     /**
-     * Get the content of the message with chosen id from database
+     * Constructor for messages repository manager that shares a pool of connections to the database
      *
-     * @param messageId - Long
-     * @return - String
+     * @param connectionPool - ConnectionPool - the pool the connections are borrowed from
      */
-    public String getMessageContentById(Long messageId) {
-        StringBuilder message = new StringBuilder();
+    public MessagesRepository(ConnectionPool connectionPool) {
+        this.queryRunner = new QueryRunner(connectionPool);
+        this.idAllocator = new BlockIdAllocator(queryRunner, ID_COUNTER, FIRST_UNUSED_ID,
+                BlockIdAllocator.DEFAULT_BLOCK_SIZE);
+        this.rowCounter = connectionPool.getRowCounter(COUNT);
+    }
 
-        String sqlQuery = "Select * from messagesContent where idMessage = ? order by partOrder";
-        try (Connection connection = DriverManager.getConnection(this.url, this.username, this.password)) {
-            PreparedStatement statement = connection.prepareStatement(sqlQuery);
-            statement.setLong(1, messageId);
+    /**
+     * Registers a listener that is told about every message added, updated or removed and every receipt written
+     * through this repository
+     *
+     * @param listener - MessagesListener
+     */
+    public void addListener(MessagesListener listener) {
+        listeners.add(listener);
+    }
 
-            ResultSet resultSet = statement.executeQuery();
+    public void removeListener(MessagesListener listener) {
+        listeners.remove(listener);
+    }
 
-            while (resultSet.next())
-                message.append(resultSet.getString("content"));
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
-        return message.toString();
+    public int getBatchSize() {
+        return batchSize;
     }
 
+    /**
+     * Sets how many rows are sent to the database at once when messages are inserted
+     *
+     * @param batchSize - int - must be positive
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize <= 0)
+            throw new IllegalArgumentException("The size of a batch must be positive!");
+        this.batchSize = batchSize;
+    }
+
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
 
     /**
-     * A method that execute a specific query on database, ignoring the result
+     * Sets the size from which the bodies of the messages are stored compressed. The bodies already stored keep
+     * their codec
      *
-     * @param sqlQuery - String
+     * @param compressionThreshold - int - the smallest body compressed, in UTF-8 bytes; Integer.MAX_VALUE stores
+     *                             every body uncompressed
      */
-    private void executeQuery(String sqlQuery) {
-        try (Connection connection = DriverManager.getConnection(this.url, this.username, this.password)) {
-            PreparedStatement statement = connection.prepareStatement(sqlQuery);
-            statement.executeQuery();
-        } catch (Exception e) {
-            if (!e.getMessage().contains("No results were returned by the query"))
-                throw new RuntimeException(e);
-        }
+    public void setCompressionThreshold(int compressionThreshold) {
+        if (compressionThreshold < 0)
+            throw new IllegalArgumentException("The compression threshold can't be negative!");
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    public int getPreviewLength() {
+        return previewLength;
     }
 
     /**
-     * Returns the Message created with the content of the current resultSet;
+     * Sets how many characters of the content of a message are stored as its preview and read by the list queries.
+     * The previews already stored are cut to the new length when read, but not lengthened
+     *
+     * @param previewLength - int - must be positive
+     */
+    public void setPreviewLength(int previewLength) {
+        if (previewLength <= 0)
+            throw new IllegalArgumentException("The length of a preview must be positive!");
+        this.previewLength = previewLength;
+    }
+
+    /**
+     * Returns the beginning of the content of a message, without splitting a character made of two chars
+     *
+     * @param messageContent - String
+     * @param length         - int - the maximum number of chars
+     * @return String
+     */
+    static String getPreview(String messageContent, int length) {
+        if (messageContent.length() <= length)
+            return messageContent;
+        if (Character.isHighSurrogate(messageContent.charAt(length - 1)))
+            length--;
+        return messageContent.substring(0, length);
+    }
+
+    /**
+     * Get the content of the message with chosen id from database
+     *
+     * @param messageId - Long
+     * @return - String - empty if there is no message with chosen id
+     */
+    public String getMessageContentById(Long messageId) {
+        return queryRunner.query(FIND_CONTENT, resultSet -> resultSet.next() ? getBodyFromResultSet(resultSet) : "",
+                messageId);
+    }
+
+    private static String getBodyFromResultSet(ResultSet resultSet) throws SQLException {
+        return MessageBodyCodec.decode(resultSet.getBytes("body"), resultSet.getShort("bodyCodec"));
+    }
+
+    /**
+     * Returns the Message created with the header fields of the current resultSet, without its content
      *
      * @param resultSet - ResultSet
      * @return - Message
@@ -76,53 +207,55 @@ public class MessagesRepository implements IRepository<Long, Message> {
         boolean received = resultSet.getBoolean("received");
         boolean seen = resultSet.getBoolean("seen");
 
-        LocalDate messageDate = resultSet.getDate("messageDate").toLocalDate();
-        LocalTime messageTime = resultSet.getTime("messageTime").toLocalTime();
-        LocalDateTime messageDateTime = LocalDateTime.of(messageDate, messageTime);
-        String messageContent = getMessageContentById(idMessage);
-
-        return new Message(idMessage, sender, receiver, messageContent, received, seen, messageDateTime);
+        LocalDateTime messageMoment = resultSet.getObject("messageMoment", LocalDateTime.class);
 
+        return new Message(idMessage, sender, receiver, null, received, seen, messageMoment);
     }
 
     /**
-     * A method that returns the message generated by the query
+     * Returns the Message created with the header fields and the preview of the current resultSet. Its content is
+     * loaded from the database the first time it is asked for, or with loadMessageContents
      *
-     * @param sqlQuery - String
-     * @return Message
+     * @param resultSet - ResultSet
+     * @return - Message
+     * @throws SQLException - if the fields of the message are not found in db
      */
-    private Message getMessageByQuery(String sqlQuery) {
-        try (Connection connection = DriverManager.getConnection(this.url, this.username, this.password)) {
-            PreparedStatement statement = connection.prepareStatement(sqlQuery);
-            ResultSet resultSet = statement.executeQuery();
-
-            if (resultSet.next())
-                return getMessageFromResultSet(resultSet);
+    private Message getMessageHeaderFromResultSet(ResultSet resultSet) throws SQLException {
+        return new Message(resultSet.getLong("idmessage"), resultSet.getString("sender"),
+                resultSet.getString("receiver"), resultSet.getBoolean("received"), resultSet.getBoolean("seen"),
+                resultSet.getObject("messageMoment", LocalDateTime.class), resultSet.getString("preview"),
+                this::getMessageContentById);
+    }
 
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
-        return null;
+    /**
+     * Reads the messages of the rows without their content
+     *
+     * @param resultSet - ResultSet - one row for every message
+     * @return - List < Message > - the messages in the order of the rows
+     * @throws SQLException - if the fields of the message are not found in db
+     */
+    private List<Message> getMessageHeaders(ResultSet resultSet) throws SQLException {
+        List<Message> messages = new ArrayList<>();
+        while (resultSet.next())
+            messages.add(getMessageHeaderFromResultSet(resultSet));
+        return messages;
     }
 
     /**
-     * A method that returns all messages generated by the query
+     * Reads the messages of the rows, with their content
      *
-     * @param sqlQuery - String
-     * @return - Collection<Message>
+     * @param resultSet - ResultSet - one row for every message
+     * @return - List < Message > - the messages in the order of the rows
+     * @throws SQLException - if the fields of the message are not found in db
      */
-    private Collection<Message> getMessagesByQuery(String sqlQuery) {
-        Collection<Message> allMessages = new ArrayList<>();
-        try (Connection connection = DriverManager.getConnection(this.url, this.username, this.password)) {
-            PreparedStatement statement = connection.prepareStatement(sqlQuery);
-            ResultSet resultSet = statement.executeQuery();
-
-            while (resultSet.next())
-                allMessages.add(getMessageFromResultSet(resultSet));
-            return allMessages;
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+    private List<Message> getMessages(ResultSet resultSet) throws SQLException {
+        List<Message> messages = new ArrayList<>();
+        while (resultSet.next()) {
+            Message message = getMessageFromResultSet(resultSet);
+            message.setMessageContent(getBodyFromResultSet(resultSet));
+            messages.add(message);
         }
+        return messages;
     }
 
     /**
@@ -133,48 +266,67 @@ public class MessagesRepository implements IRepository<Long, Message> {
      */
     @Override
     public Message findById(Long messageId) {
-        String sqlQuery = "Select * from messages where idMessage = " + messageId;
-        return getMessageByQuery(sqlQuery);
+        List<Message> messages = queryRunner.query(FIND_BY_ID, this::getMessages, messageId);
+        return messages.isEmpty() ? null : messages.getFirst();
     }
 
     /**
-     * Returns all messages from database
+     * Returns all messages from database, without their content; the content of a message is loaded when it is
+     * asked for
      *
      * @return - Iterable - Message
      */
     @Override
     public Collection<Message> findAll() {
-        String sqlQuery = "Select * from messages";
-        return getMessagesByQuery(sqlQuery);
+        return queryRunner.query(FIND_ALL, this::getMessageHeaders, previewLength);
     }
 
     /**
-     * Add the content of the message in messagesContent database
+     * Loads the content of the messages read without it with one query for every batch of messages, like when a
+     * conversation is opened from the list of conversations
+     *
+     * @param messages - Collection < Message > - the messages whose content is loaded already are skipped
+     */
+    public void loadMessageContents(Collection<Message> messages) {
+        List<Message> pending = new ArrayList<>();
+        for (Message message : messages)
+            if (!message.isContentLoaded())
+                pending.add(message);
+
+        for (int from = 0; from < pending.size(); from += batchSize) {
+            List<Message> batch = pending.subList(from, Math.min(from + batchSize, pending.size()));
+            Object[] ids = new Object[batch.size()];
+            for (int i = 0; i < ids.length; i++)
+                ids[i] = batch.get(i).getId();
+            String query = FIND_CONTENTS + "(" + "?, ".repeat(ids.length - 1) + "?)";
+            Map<Long, String> contents = queryRunner.query(query, resultSet -> {
+                Map<Long, String> found = new HashMap<>();
+                while (resultSet.next())
+                    found.put(resultSet.getLong("idMessage"), getBodyFromResultSet(resultSet));
+                return found;
+            }, ids);
+            for (Message message : batch)
+                message.setMessageContent(contents.getOrDefault(message.getId(), ""));
+        }
+    }
+
+    /**
+     * Replaces the content of the message with chosen id
      *
      * @param idMessage      - Long
      * @param messageContent - String
      */
     public void insertMessageContent(Long idMessage, String messageContent) {
-        String sqlQuery = "Insert into messagesContent(idMessage, partOrder, content) values(?,?,?);";
-        int packageNumber = 1;
-        try (Connection connection = DriverManager.getConnection(this.url, this.username, this.password)) {
-            PreparedStatement statement = connection.prepareStatement(sqlQuery);
-            statement.setLong(1, idMessage);
-            while (messageContent.length() > 256) {
-                String currentPackage = messageContent.substring(0, 256);
-                messageContent = messageContent.substring(256);
-
-                statement.setLong(2, packageNumber++);
-                statement.setString(3, messageContent);
-                statement.executeQuery();
-            }
-            statement.setLong(2, packageNumber++);
-            statement.setString(3, messageContent);
-            statement.executeQuery();
-        } catch (Exception e) {
-            if (!e.getMessage().contains("No results were returned by the query"))
-                throw new RuntimeException(e);
-        }
+        MessageBodyCodec.EncodedBody body = MessageBodyCodec.encode(messageContent, compressionThreshold);
+        queryRunner.update(UPDATE_CONTENT, body.getBytes(), body.getCodec(),
+                getPreview(messageContent, previewLength), idMessage);
+    }
+
+    private Object[] getInsertRow(Message message, MessageBodyCodec.EncodedBody body) {
+        String messageContent = message.getMessageContent();
+        return new Object[]{message.getId(), message.getSender(), message.getReceiver(), message.getMessageTime(),
+                message.isSeen(), message.isReceived(), body.getBytes(), body.getCodec(),
+                getPreview(messageContent, previewLength)};
     }
 
     /**
@@ -185,27 +337,60 @@ public class MessagesRepository implements IRepository<Long, Message> {
      */
     @Override
     public Message add(Message message) {
-        Message existingMessage = this.findById(message.getId());
-        if (existingMessage != null)
-            return existingMessage;
-
-        String date = DataTypeConvertors.getDateStringFromDateTime(message.getMessageTime());
-        String time = DataTypeConvertors.getTimeStringFromDateTime(message.getMessageTime());
-
-        String sqlQuery = "Insert into Messages(idmessage, sender, receiver, messageTime, messageDate, seen, received) " +
-                "values (" + message.getId() + ",'" + message.getSender() + "','" + message.getReceiver() +
-                "','" + time + "','" + date + " ', " + message.isSeen() + "," + message.isReceived() + ");";
-        try (Connection connection = DriverManager.getConnection(this.url, this.username, this.password)) {
-            PreparedStatement statement = connection.prepareStatement(sqlQuery);
-            statement.executeQuery();
-
-        } catch (Exception e) {
-            if (!e.getMessage().contains("No results were returned by the query"))
-                throw new RuntimeException(e);
-            else
-                insertMessageContent(message.getId(), message.getMessageContent());
+        Object[] insertRow = getInsertRow(message,
+                MessageBodyCodec.encode(message.getMessageContent(), compressionThreshold));
+        for (int attempt = 0; attempt < MAXIMUM_ADD_ATTEMPTS; attempt++) {
+            boolean inserted = queryRunner.inTransaction(transaction -> {
+                if (transaction.update(INSERT_IF_ABSENT, insertRow) == 0)
+                    return false;
+                conversationSummaryStore.recordNewMessages(transaction, List.of(message));
+                return true;
+            });
+            if (inserted) {
+                rowCounter.add(1);
+                for (MessagesListener listener : listeners)
+                    listener.messageAdded(message);
+                return null;
+            }
+            // the id is taken; the message is loaded only now, and tried again if it was deleted in the meantime
+            Message existingMessage = this.findById(message.getId());
+            if (existingMessage != null)
+                return existingMessage;
+        }
+        throw new RuntimeException("The message " + message.getId() + " could not be added!");
+    }
+
+    /**
+     * Adds many new messages in a single transaction, sending the messages to the database in batches. If one of
+     * the ids is already taken, none of the messages is added
+     *
+     * @param messages - Collection < Message > - the messages we add
+     * @return - BulkInsertReport - how many rows were written and how fast
+     */
+    public BulkInsertReport addAll(Collection<Message> messages) {
+        long start = System.nanoTime();
+
+        int threshold = compressionThreshold;
+        List<Object[]> messageRows = new ArrayList<>(messages.size());
+        int compressedMessages = 0;
+        for (Message message : messages) {
+            MessageBodyCodec.EncodedBody body = MessageBodyCodec.encode(message.getMessageContent(), threshold);
+            if (body.isCompressed())
+                compressedMessages++;
+            messageRows.add(getInsertRow(message, body));
         }
-        return null;
+
+        queryRunner.inTransaction(transaction -> {
+            transaction.batchUpdate(INSERT, messageRows, batchSize);
+            conversationSummaryStore.recordNewMessages(transaction, messages);
+            return null;
+        });
+        rowCounter.add(messageRows.size());
+        for (MessagesListener listener : listeners)
+            for (Message message : messages)
+                listener.messageAdded(message);
+
+        return new BulkInsertReport(messageRows.size(), compressedMessages, System.nanoTime() - start);
     }
 
     /**
@@ -215,27 +400,47 @@ public class MessagesRepository implements IRepository<Long, Message> {
      */
     @Override
     public void remove(Long idMessage) {
-        Message message = this.findById(idMessage);
-        String sqlQuery = "DELETE FROM MESSAGES WHERE idMessage = " + idMessage;
-        try (Connection connection = DriverManager.getConnection(this.url, this.username, this.password)) {
-            PreparedStatement statement = connection.prepareStatement(sqlQuery);
-            statement.executeQuery();
-        } catch (Exception e) {
-            if (!e.getMessage().contains("No results were returned by the query"))
-                throw new RuntimeException(e);
-        }
+        Message removedMessage = queryRunner.inTransaction(transaction -> {
+            Message removed = transaction.queryForObject(FIND_HEADER, this::getMessageFromResultSet, idMessage);
+            if (removed == null || transaction.update(DELETE, idMessage) == 0)
+                return null;
+            conversationSummaryStore.recordRemoved(transaction, removed);
+            return removed;
+        });
+        if (removedMessage == null)
+            return;
+        rowCounter.add(-1);
+        for (MessagesListener listener : listeners)
+            listener.messageRemoved(removedMessage);
     }
 
     /**
-     * Updates the message with chosen id
+     * Updates the message with chosen id and its content in one transaction. If there is no message with chosen id,
+     * the entity is added
      *
      * @param idMessage the id of the entity
      * @param entity    the new entity
      */
     @Override
     public void updateEntity(Long idMessage, Message entity) {
-        this.remove(idMessage);
-        this.add(entity);
+        Object[] updateRow = Arrays.copyOf(getInsertRow(entity,
+                MessageBodyCodec.encode(entity.getMessageContent(), compressionThreshold)), 10);
+        updateRow[9] = idMessage;
+        Message previousMessage = queryRunner.inTransaction(transaction -> {
+            Message previous = transaction.queryForObject(FIND_HEADER, this::getMessageFromResultSet, idMessage);
+            if (previous == null)
+                return null;
+            transaction.update(UPDATE, updateRow);
+            conversationSummaryStore.recordRemoved(transaction, previous);
+            conversationSummaryStore.recordNewMessages(transaction, List.of(entity));
+            return previous;
+        });
+        if (previousMessage == null) {
+            this.add(entity);
+            return;
+        }
+        for (MessagesListener listener : listeners)
+            listener.messageUpdated(previousMessage, entity);
     }
 
     /**
@@ -251,63 +456,55 @@ public class MessagesRepository implements IRepository<Long, Message> {
     }
 
     /**
-     * Returns the number of messages from database
+     * Returns the number of messages from database, without counting the table on every call
      *
      * @return int
      */
     @Override
     public int size() {
-        String sqlQuery = "Select count(idMessage) from messages";
-        try (Connection connection = DriverManager.getConnection(this.url, this.username, this.password)) {
-            PreparedStatement statement = connection.prepareStatement(sqlQuery);
-            ResultSet resultSet = statement.executeQuery();
-            resultSet.next();
-            return resultSet.getInt("count");
-        } catch (Exception e) {
-            throw new RuntimeException(e.getMessage());
-        }
+        return rowCounter.get();
     }
 
     /**
-     * A method that returns the smallest available id in database
+     * A method that returns a new id for a message. The ids are reserved from the database in blocks, so two
+     * senders never get the same id, even when they send at the same time
      *
      * @return Long
      */
     public Long generateAvailableId() {
-        String sqlQuery = "        SELECT MIN(m1.idMessage + 1) AS nextID" +
-                "        FROM messages m1" +
-                "        LEFT JOIN messages m2" +
-                "        ON m1.idMessage + 1 = m2.idMessage" +
-                "        WHERE m2.idMessage IS NULL;";
-        try (Connection connection = DriverManager.getConnection(this.url, this.username, this.password)) {
-            PreparedStatement statement = connection.prepareStatement(sqlQuery);
-            ResultSet resultSet = statement.executeQuery();
-            resultSet.next();
-            return resultSet.getLong("nextID");
-        } catch (Exception e) {
-            throw new RuntimeException(e.getMessage());
-        }
+        return idAllocator.nextId();
     }
 
     /**
-     * A method that returns the last message from every conversation of the current user
+     * A method that returns the last message from every conversation of the current user, newest first. The
+     * messages are read with their preview but without their content
      *
      * @param username - String - the username of the user
      * @return - Iterable < Message >
      */
     public Iterable<Message> getLastMessageFromEveryConversationOfUser(String username) {
-        String sqlQuery = "Select * from messages m\n" +
-                "where m.messageDate =\n" +
-                "(select max(messageDate) from messages m2\n" +
-                "                         where (m.sender = m2.sender and m.receiver = m2.receiver) or\n" +
-                "                               (m.receiver = m2.sender and m.sender = m2.receiver))\n" +
-                "and\n" +
-                "    m.messagetime = (select max(m3.messageTime) from messages m3\n" +
-                "                     where ((m.sender = m3.sender and m.receiver = m3.receiver) or\n" +
-                "                         (m.receiver = m3.sender and m.sender = m3.receiver))\n" +
-                "                        and m.messageDate = m3.messageDate) " +
-                "and (sender = '" + username + "' or receiver = '" + username + "')";
-        return getMessagesByQuery(sqlQuery);
+        return queryRunner.query(CONVERSATIONS_OF_USER, this::getMessageHeaders, previewLength, username, username);
+    }
+
+    /**
+     * A method that returns the summary of every conversation of the current user, newest first
+     *
+     * @param username - String - the username of the user
+     * @return - List < ConversationSummary > - the last message, without its content, and the unread count of every
+     * conversation
+     */
+    public List<ConversationSummary> getConversationSummariesOfUser(String username) {
+        return queryRunner.query(CONVERSATIONS_OF_USER, resultSet -> {
+            List<ConversationSummary> summaries = new ArrayList<>();
+            while (resultSet.next()) {
+                Message message = getMessageHeaderFromResultSet(resultSet);
+                boolean isFirstUser = username.equals(resultSet.getString("user1"));
+                int unreadCount = resultSet.getInt(isFirstUser ? "unreadByUser1" : "unreadByUser2");
+                summaries.add(new ConversationSummary(message.getTheUsernameOfTheOtherUser(username), message,
+                        unreadCount));
+            }
+            return summaries;
+        }, previewLength, username, username);
     }
 
     /**
@@ -318,11 +515,37 @@ public class MessagesRepository implements IRepository<Long, Message> {
      * @return Iterable < Message >
      */
     public Iterable<Message> getMessagesBetween2User(String username1, String username2) {
-        String usernamesTuple = "('" + username1 + "','" + username2 + "')";
-        String sqlQuery = "Select * from messages where " +
-                "sender in " + usernamesTuple + " and receiver in " + usernamesTuple +
-                " order by messageDate,messageTime ASC";
-        return getMessagesByQuery(sqlQuery);
+        return queryRunner.query(MESSAGES_BETWEEN_USERS, this::getMessages,
+                username1, username2, username1, username2);
+    }
+
+    /**
+     * Returns the newest messages between 2 users, sorted descending by the sending moment. Used when a conversation
+     * is opened; the older messages are loaded with getOlderMessagesBetween2User
+     *
+     * @param username1 - String
+     * @param username2 - String
+     * @param pageSize  - int - the maximum number of messages returned
+     * @return List < Message >
+     */
+    public List<Message> getLatestMessagesBetween2User(String username1, String username2, int pageSize) {
+        return queryRunner.query(LATEST_MESSAGES_BETWEEN_USERS, this::getMessages,
+                username1, username2, username1, username2, pageSize);
+    }
+
+    /**
+     * Returns the messages between 2 users that are older than the cursor, sorted descending by the sending moment
+     *
+     * @param username1 - String
+     * @param username2 - String
+     * @param cursor    - MessageCursor - the position of the oldest message already loaded
+     * @param pageSize  - int - the maximum number of messages returned
+     * @return List < Message > - empty if there are no older messages
+     */
+    public List<Message> getOlderMessagesBetween2User(String username1, String username2, MessageCursor cursor,
+                                                      int pageSize) {
+        return queryRunner.query(OLDER_MESSAGES_BETWEEN_USERS, this::getMessages,
+                username1, username2, username1, username2, cursor.getMessageTime(), cursor.getIdMessage(), pageSize);
     }
 
     /**
@@ -332,15 +555,11 @@ public class MessagesRepository implements IRepository<Long, Message> {
      * @param message - Message
      */
     public void setMessagesReceived(Message message) {
-        String stringDate = DataTypeConvertors.getDateStringFromDateTime(message.getMessageTime());
-        String stringTime = DataTypeConvertors.getCompressedTimeStringFromDateTime(message.getMessageTime());
-        String sqlQuery = "Update messages " +
-                "set received = true " +
-                "where sender = '" + message.getSender() + "' and receiver = '" + message.getReceiver() + "' " +
-                "and (messages.messageDate < '" + stringDate + "' " +
-                " or (messages.messageDate = '" + stringDate + "' " +
-                " and messages.messageTime <= '" + stringTime + "'))";
-        executeQuery(sqlQuery);
+        if (queryRunner.update(SET_RECEIVED, message.getSender(), message.getReceiver(),
+                message.getMessageTime()) == 0)
+            return;
+        for (MessagesListener listener : listeners)
+            listener.messagesReceived(message.getSender(), message.getReceiver(), message.getMessageTime());
     }
 
     /**
@@ -349,9 +568,77 @@ public class MessagesRepository implements IRepository<Long, Message> {
      * @param idMessage - Long
      */
     public void setMessageSeen(Long idMessage) {
-        String sqlQuery = "Update messages " +
-                "set received = true, seen = true " +
-                "where idMessage = " + idMessage;
-        executeQuery(sqlQuery);
+        Message seenMessage = queryRunner.inTransaction(transaction -> {
+            Message message = transaction.queryForObject(FIND_HEADER, this::getMessageFromResultSet, idMessage);
+            if (message == null || message.isSeen())
+                return null;
+            int seenCount = transaction.update(SET_SEEN, idMessage);
+            conversationSummaryStore.recordSeen(transaction, message.getSender(), message.getReceiver(), seenCount);
+            if (seenCount == 0)
+                return null;
+            message.setSeen(true);
+            message.setReceived(true);
+            return message;
+        });
+        if (seenMessage == null)
+            return;
+        for (MessagesListener listener : listeners)
+            listener.messageSeen(seenMessage);
+    }
+
+    /**
+     * Writes the received and seen marks collected by a ReceiptWriter in one transaction: the received marks in one
+     * batch, and one statement for the seen marks of every conversation
+     *
+     * @param watermarks - Collection < ReceiptWriter.Watermark > - at most one for every sender and receiver
+     */
+    void writeReceipts(Collection<ReceiptWriter.Watermark> watermarks) {
+        List<Object[]> receivedRows = new ArrayList<>();
+        for (ReceiptWriter.Watermark watermark : watermarks)
+            if (watermark.getReceivedUpTo() != null)
+                receivedRows.add(new Object[]{watermark.getSender(), watermark.getReceiver(),
+                        watermark.getReceivedUpTo()});
+
+        int[] receivedCounts = new int[receivedRows.size()];
+        int[] seenCounts = queryRunner.inTransaction(transaction -> {
+            if (!receivedRows.isEmpty())
+                System.arraycopy(transaction.batchUpdateEach(SET_RECEIVED, receivedRows, batchSize), 0,
+                        receivedCounts, 0, receivedCounts.length);
+            int[] counts = new int[watermarks.size()];
+            int index = 0;
+            for (ReceiptWriter.Watermark watermark : watermarks) {
+                if (watermark.getSeenUpTo() != null) {
+                    counts[index] = transaction.update(SET_SEEN_UP_TO, watermark.getSender(),
+                            watermark.getReceiver(), watermark.getSeenUpTo(), watermark.getSeenUpToId());
+                    conversationSummaryStore.recordSeen(transaction, watermark.getSender(), watermark.getReceiver(),
+                            counts[index]);
+                }
+                index++;
+            }
+            return counts;
+        });
+
+        if (listeners.isEmpty())
+            return;
+        int index = 0;
+        int receivedIndex = 0;
+        for (ReceiptWriter.Watermark watermark : watermarks) {
+            // only the watermarks that marked some message received are told; a driver that doesn't give the
+            // counts of a batch may have changed rows
+            boolean received = false;
+            if (watermark.getReceivedUpTo() != null) {
+                int receivedCount = receivedCounts[receivedIndex++];
+                received = receivedCount > 0 || receivedCount == Statement.SUCCESS_NO_INFO;
+            }
+            for (MessagesListener listener : listeners) {
+                if (received)
+                    listener.messagesReceived(watermark.getSender(), watermark.getReceiver(),
+                            watermark.getReceivedUpTo());
+                if (seenCounts[index] > 0)
+                    listener.messagesSeen(watermark.getSender(), watermark.getReceiver(), watermark.getSeenUpTo(),
+                            watermark.getSeenUpToId(), seenCounts[index]);
+            }
+            index++;
+        }
     }
-}
\ No newline at end of file
+}
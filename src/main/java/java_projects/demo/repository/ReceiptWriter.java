@@ -0,0 +1,262 @@
+package java_projects.demo.repository;
+
+import java_projects.demo.domain.Message;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Collects the received and seen marks of the messages and writes them to the database together, instead of one
+ * update on its own connection for every mark. The marks of every sender and receiver are merged into a watermark:
+ * the newest message marked received and the newest message marked seen, which stand for all the older messages of
+ * the same sender to the same receiver too. The watermarks are written periodically, as soon as many conversations
+ * have pending marks, and when the writer is closed or the application shuts down
+ */
+public class ReceiptWriter implements AutoCloseable {
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 200;
+    public static final int DEFAULT_MAXIMUM_PENDING_CONVERSATIONS = 256;
+
+    /**
+     * The marks of the messages sent by one user to another that are not written yet
+     */
+    static final class Watermark {
+        private final String sender;
+        private final String receiver;
+        private LocalDateTime receivedUpTo;
+        private LocalDateTime seenUpTo;
+        private long seenUpToId;
+
+        private Watermark(String sender, String receiver) {
+            this.sender = sender;
+            this.receiver = receiver;
+        }
+
+        String getSender() {
+            return sender;
+        }
+
+        String getReceiver() {
+            return receiver;
+        }
+
+        /**
+         * Returns the moment up to which the messages are received, or null if a seen mark covers them already
+         */
+        LocalDateTime getReceivedUpTo() {
+            if (receivedUpTo == null || (seenUpTo != null && !receivedUpTo.isAfter(seenUpTo)))
+                return null;
+            return receivedUpTo;
+        }
+
+        LocalDateTime getSeenUpTo() {
+            return seenUpTo;
+        }
+
+        long getSeenUpToId() {
+            return seenUpToId;
+        }
+
+        private void markReceived(LocalDateTime messageTime) {
+            if (receivedUpTo == null || messageTime.isAfter(receivedUpTo))
+                receivedUpTo = messageTime;
+        }
+
+        private void markSeen(LocalDateTime messageTime, long idMessage) {
+            if (seenUpTo == null || messageTime.isAfter(seenUpTo)
+                    || (messageTime.equals(seenUpTo) && idMessage > seenUpToId)) {
+                seenUpTo = messageTime;
+                seenUpToId = idMessage;
+            }
+        }
+
+        private void merge(Watermark other) {
+            if (other.receivedUpTo != null)
+                markReceived(other.receivedUpTo);
+            if (other.seenUpTo != null)
+                markSeen(other.seenUpTo, other.seenUpToId);
+        }
+    }
+
+    private final MessagesRepository messagesRepository;
+    private final int maximumPendingConversations;
+    private final ScheduledExecutorService flushScheduler;
+    private final Thread shutdownHook;
+    // guarded by itself
+    private final Map<String, Watermark> pendingWatermarks = new LinkedHashMap<>();
+    // held while the watermarks are written, so the writes don't overlap; a lock instead of a monitor, so a virtual
+    // thread that flushes doesn't pin its carrier while it waits for the database
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private boolean flushRequested = false;
+    private volatile boolean closed = false;
+
+    /**
+     * Constructor for a writer with the default flush interval and number of pending conversations
+     *
+     * @param messagesRepository - MessagesRepository - writes the marks
+     */
+    public ReceiptWriter(MessagesRepository messagesRepository) {
+        this(messagesRepository, DEFAULT_FLUSH_INTERVAL_MILLIS, DEFAULT_MAXIMUM_PENDING_CONVERSATIONS);
+    }
+
+    /**
+     * Constructor for a writer of the received and seen marks
+     *
+     * @param messagesRepository          - MessagesRepository - writes the marks
+     * @param flushIntervalMillis         - long - how long a mark may wait before it is written; must be positive
+     * @param maximumPendingConversations - int - how many conversations may have pending marks before they are
+     *                                    written without waiting for the interval; must be positive
+     */
+    public ReceiptWriter(MessagesRepository messagesRepository, long flushIntervalMillis,
+                         int maximumPendingConversations) {
+        if (flushIntervalMillis <= 0)
+            throw new IllegalArgumentException("The flush interval must be positive!");
+        if (maximumPendingConversations <= 0)
+            throw new IllegalArgumentException("The number of pending conversations must be positive!");
+
+        this.messagesRepository = messagesRepository;
+        this.maximumPendingConversations = maximumPendingConversations;
+        this.flushScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "receipt-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.flushScheduler.scheduleWithFixedDelay(this::flushInBackground, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+        this.shutdownHook = new Thread(this::flushInBackground, "receipt-writer-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Marks the message and the older messages of its sender to its receiver as received, like
+     * MessagesRepository.setMessagesReceived
+     *
+     * @param message - Message
+     */
+    public void markReceived(Message message) {
+        mark(message, false);
+    }
+
+    /**
+     * Marks the message and the older messages of its sender to its receiver as seen and received. Unlike
+     * MessagesRepository.setMessageSeen, the older messages are marked too, like when the receiver scrolls through
+     * the conversation
+     *
+     * @param message - Message
+     */
+    public void markSeen(Message message) {
+        mark(message, true);
+    }
+
+    private void mark(Message message, boolean seen) {
+        boolean flushNow;
+        synchronized (pendingWatermarks) {
+            Watermark watermark = pendingWatermarks.computeIfAbsent(
+                    message.getSender() + '\u0000' + message.getReceiver(),
+                    key -> new Watermark(message.getSender(), message.getReceiver()));
+            if (seen)
+                watermark.markSeen(message.getMessageTime(), message.getId());
+            else
+                watermark.markReceived(message.getMessageTime());
+            flushNow = !flushRequested && pendingWatermarks.size() >= maximumPendingConversations;
+            if (flushNow)
+                flushRequested = true;
+        }
+        // after the writer is closed nothing else flushes, so the mark is written right away
+        if (closed) {
+            flush();
+        } else if (flushNow) {
+            try {
+                flushScheduler.execute(this::flushInBackground);
+            } catch (RejectedExecutionException e) {
+                // the writer was closed in the meantime
+                flush();
+            }
+        }
+    }
+
+    /**
+     * Returns how many conversations have marks that are not written yet
+     *
+     * @return int
+     */
+    public int getPendingConversations() {
+        synchronized (pendingWatermarks) {
+            return pendingWatermarks.size();
+        }
+    }
+
+    /**
+     * Writes all pending marks now. If the database can't be reached the marks stay pending and are written by the
+     * next flush
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            List<Watermark> watermarks;
+            synchronized (pendingWatermarks) {
+                watermarks = new ArrayList<>(pendingWatermarks.values());
+                pendingWatermarks.clear();
+                flushRequested = false;
+            }
+            if (watermarks.isEmpty())
+                return;
+            try {
+                messagesRepository.writeReceipts(watermarks);
+            } catch (RuntimeException e) {
+                restore(watermarks);
+                throw e;
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushInBackground() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // the marks are pending again; the next flush tries again
+        }
+    }
+
+    private void restore(Collection<Watermark> watermarks) {
+        synchronized (pendingWatermarks) {
+            for (Watermark watermark : watermarks)
+                pendingWatermarks.merge(watermark.getSender() + '\u0000' + watermark.getReceiver(), watermark,
+                        (pending, restored) -> {
+                            pending.merge(restored);
+                            return pending;
+                        });
+        }
+    }
+
+    /**
+     * Stops the periodic flushes and writes the pending marks. The marks made after the writer is closed are
+     * written right away
+     */
+    @Override
+    public void close() {
+        closed = true;
+        flushScheduler.shutdown();
+        try {
+            flushScheduler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // the application is shutting down already and the hook flushes anyway
+        }
+        flush();
+    }
+}
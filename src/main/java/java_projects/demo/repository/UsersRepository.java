@@ -1,21 +1,31 @@
 package java_projects.demo.repository;
 
+import java_projects.demo.database.ConnectionPool;
+import java_projects.demo.database.QueryRunner;
+import java_projects.demo.database.RowCounter;
 import java_projects.demo.domain.User;
 import java_projects.demo.domain.UserProfile;
 
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.PreparedStatement;
 import java.sql.ResultSet;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.concurrent.atomic.AtomicInteger;
-
-public class UsersRepository implements IRepository<String, User> {
-
-    String url;
-    String username;
-    String password;
+import java.sql.SQLException;
+
+public class UsersRepository implements IUsersRepository {
+
+    private static final String FIND_BY_USERNAME = "Select * from Users where username = ?";
+    private static final String FIND_ALL = "Select * from Users";
+    private static final String INSERT = "Insert into users(username, password, firstname, lastname, email, gender) " +
+            "values(?, ?, ?, ?, ?, ?) on conflict (username) do nothing";
+    // how many times add inserts again after the existing user was deleted before it could be loaded
+    private static final int MAXIMUM_ADD_ATTEMPTS = 3;
+    private static final String UPDATE = "Update users set username = ?, password = ?, firstname = ?, lastname = ?, " +
+            "email = ?, gender = ? where username = ?";
+    private static final String DELETE = "DELETE FROM Users WHERE username = ?";
+    private static final String COUNT = "Select count(*) from Users";
+    private static final String UPDATE_DESCRIPTION = "Update users set description = ? where username = ?";
+    private static final String UPDATE_PROFILE_PICTURE_PATH = "Update users set profilePicturePath = ? where username = ?";
+
+    private final QueryRunner queryRunner;
+    private final RowCounter rowCounter;
 
     /**
      * Constructor for user repository manager in database
@@ -25,9 +35,17 @@ public class UsersRepository implements IRepository<String, User> {
      * @param password - String - the password for the database login
      */
     public UsersRepository(String url, String username, String password) {
-        this.url = url;
-        this.username = username;
-        this.password = password;
+        this(new ConnectionPool(url, username, password));
+    }
+
+    /**
+     * Constructor for user repository manager that shares a pool of connections to the database
+     *
+     * @param connectionPool - ConnectionPool - the pool the connections are borrowed from
+     */
+    public UsersRepository(ConnectionPool connectionPool) {
+        this.queryRunner = new QueryRunner(connectionPool);
+        this.rowCounter = connectionPool.getRowCounter(COUNT);
     }
 
     /**
@@ -36,7 +54,7 @@ public class UsersRepository implements IRepository<String, User> {
      * @param resultSet - ResultSet - reference for users list from db.
      * @return - User - current user from db
      */
-    public User getUserFromResultSet(ResultSet resultSet) throws Exception {
+    public User getUserFromResultSet(ResultSet resultSet) throws SQLException {
         String username = String.valueOf(resultSet.getObject("username"));
         String password = String.valueOf(resultSet.getObject("password"));
         String firstname = String.valueOf(resultSet.getObject("firstname"));
@@ -53,7 +71,7 @@ public class UsersRepository implements IRepository<String, User> {
      * @param resultSet - ResultSet - reference for users list from db.
      * @return - User - current user from db
      */
-    public UserProfile getUserProfileFromResultSet(ResultSet resultSet) throws Exception {
+    public UserProfile getUserProfileFromResultSet(ResultSet resultSet) throws SQLException {
         String username = resultSet.getString("username");
         String password = resultSet.getString("password");
         String firstname = resultSet.getString("firstname");
@@ -62,91 +80,12 @@ public class UsersRepository implements IRepository<String, User> {
         String gender = resultSet.getString("gender");
         String description = resultSet.getString("description");
         String profilePicturePath = resultSet.getString("profilePicturePath");
-        if (profilePicturePath.equals("null"))
+        if ("null".equals(profilePicturePath))
             profilePicturePath = null;
 
         return new UserProfile(username, password, firstname, lastname, email, gender, description, profilePicturePath);
     }
 
-    /**
-     * A method that returns the user generated by the query
-     *
-     * @param sqlQuery - String
-     * @return User
-     */
-    public User getUserGeneratedByQuery(String sqlQuery) {
-        try (Connection connection = DriverManager.getConnection(this.url, this.username, this.password)) {
-            PreparedStatement statement = connection.prepareStatement(sqlQuery);
-            ResultSet resultSet = statement.executeQuery();
-            if (resultSet.next())
-                return getUserFromResultSet(resultSet);
-
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
-        return null;
-    }
-
-    /**
-     * A method that returns the UserProfile generated by the query
-     *
-     * @param sqlQuery - String
-     * @return User
-     */
-    public UserProfile getUseProfileGeneratedByQuery(String sqlQuery) {
-        try (Connection connection = DriverManager.getConnection(this.url, this.username, this.password)) {
-            PreparedStatement statement = connection.prepareStatement(sqlQuery);
-            ResultSet resultSet = statement.executeQuery();
-            if (resultSet.next())
-                return getUserProfileFromResultSet(resultSet);
-
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
-        return null;
-    }
-
-    public Iterable<User> getIterableUsersGeneratedByQuery(String sqlQuery) {
-        Collection<User> users = new ArrayList<>();
-        try (Connection connection = DriverManager.getConnection(this.url, this.username, this.password)) {
-            PreparedStatement statement = connection.prepareStatement(sqlQuery);
-            ResultSet resultSet = statement.executeQuery();
-
-            while (resultSet.next())
-                users.add(getUserFromResultSet(resultSet));
-
-            return users;
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
-    }
-
-    public void executeQuery(String sqlQuery) {
-        try (Connection connection = DriverManager.getConnection(this.url, this.username, this.password)) {
-            PreparedStatement statement = connection.prepareStatement(sqlQuery);
-            statement.executeQuery();
-        } catch (Exception e) {
-            if (!e.getMessage().contains("No results were returned by the query"))
-                throw new RuntimeException(e);
-        }
-    }
-
-    public Iterable<String> getIdOfUsersByQuery(String sqlQuery) {
-        ArrayList<String> users = new ArrayList<>();
-        try (Connection connection = DriverManager.getConnection(url, username, password)) {
-            PreparedStatement statement = connection.prepareStatement(sqlQuery);
-            ResultSet resultSet = statement.executeQuery();
-            while (resultSet.next()) {
-                users.add(resultSet.getString("username"));
-            }
-
-        } catch (Exception e) {
-            throw new RuntimeException(e.getMessage());
-        }
-
-        return users;
-    }
-
     /**
      * Returns the user with chosen id from db
      *
@@ -155,8 +94,7 @@ public class UsersRepository implements IRepository<String, User> {
      */
     @Override
     public User findById(String username) {
-        String sqlQuery = "Select * from Users where username = '" + username + "'";
-        return getUserGeneratedByQuery(sqlQuery);
+        return queryRunner.queryForObject(FIND_BY_USERNAME, this::getUserFromResultSet, username);
     }
 
     /**
@@ -165,9 +103,9 @@ public class UsersRepository implements IRepository<String, User> {
      * @param username - String - must be not null
      * @return - User - current user
      */
+    @Override
     public UserProfile getUserProfileById(String username) {
-        String sqlQuery = "Select * from Users where username = '" + username + "'";
-        return getUseProfileGeneratedByQuery(sqlQuery);
+        return queryRunner.queryForObject(FIND_BY_USERNAME, this::getUserProfileFromResultSet, username);
     }
 
     /**
@@ -177,8 +115,7 @@ public class UsersRepository implements IRepository<String, User> {
      */
     @Override
     public Iterable<User> findAll() {
-        String sqlQuery = "Select * from Users";
-        return getIterableUsersGeneratedByQuery(sqlQuery);
+        return queryRunner.queryForList(FIND_ALL, this::getUserFromResultSet);
     }
 
     /**
@@ -190,16 +127,19 @@ public class UsersRepository implements IRepository<String, User> {
      */
     @Override
     public User add(User user) {
-        User existentUser = findById(user.getId());
-        if (existentUser != null)
-            return existentUser;
-
-        String sqlQuery = "Insert into users(username, password, firstname, lastname, email, gender) " +
-                "values('" + user.getUsername() + "', '" + user.getPassword() + "', '" + user.getFirstName() + "', '"
-                + user.getLastName() + "', '" + user.getEmail() + "', '" + user.getGender() + "')";
-        System.out.println(sqlQuery);
-        executeQuery(sqlQuery);
-        return null;
+        for (int attempt = 0; attempt < MAXIMUM_ADD_ATTEMPTS; attempt++) {
+            int inserted = queryRunner.update(INSERT, user.getUsername(), user.getPassword(), user.getFirstName(),
+                    user.getLastName(), user.getEmail(), user.getGender());
+            if (inserted > 0) {
+                rowCounter.add(inserted);
+                return null;
+            }
+            // the username is taken; it is loaded only now, and tried again if it was deleted in the meantime
+            User existentUser = findById(user.getId());
+            if (existentUser != null)
+                return existentUser;
+        }
+        throw new RuntimeException("The user " + user.getUsername() + " could not be added!");
     }
 
     /**
@@ -209,23 +149,22 @@ public class UsersRepository implements IRepository<String, User> {
      */
     @Override
     public void remove(String id) {
-        User removedUser = this.findById(id);
-        if (removedUser == null)
-            return;
-        String sqlQuery = "DELETE FROM Users WHERE id=" + id;
-        executeQuery(sqlQuery);
+        rowCounter.add(-queryRunner.update(DELETE, id));
     }
 
     /**
-     * Update the user with given id to entity
+     * Update the user with given id to entity, in a single statement. The description and the profile picture are
+     * kept. If there is no user with given id, the entity is added
      *
      * @param id     - Long - the id of the entity
      * @param entity - User - the entity that will become the user with given id
      */
     @Override
     public void updateEntity(String id, User entity) {
-        this.remove(id);
-        this.add(entity);
+        int updated = queryRunner.update(UPDATE, entity.getUsername(), entity.getPassword(), entity.getFirstName(),
+                entity.getLastName(), entity.getEmail(), entity.getGender(), id);
+        if (updated == 0)
+            this.add(entity);
     }
 
     /**
@@ -247,20 +186,16 @@ public class UsersRepository implements IRepository<String, User> {
      */
     @Override
     public int size() {
-        AtomicInteger counter = new AtomicInteger();
-        getIdOfUsersByQuery("Select * from users").forEach(username -> {
-            counter.incrementAndGet();
-        });
-        return counter.get();
+        return rowCounter.get();
     }
 
+    @Override
     public void updateDescription(String newDescription, String username) {
-        String sqlQuery = "Update users set description = '" + newDescription + "' where username = '" + username + "'";
-        executeQuery(sqlQuery);
+        queryRunner.update(UPDATE_DESCRIPTION, newDescription, username);
     }
 
+    @Override
     public void changeProfilePicturePath(String newPath, String username) {
-        String sqlQuery = "Update users set profilePicturePath = '" + newPath + "' where username = '" + username + "'";
-        executeQuery(sqlQuery);
+        queryRunner.update(UPDATE_PROFILE_PICTURE_PATH, newPath, username);
     }
 }
@@ -0,0 +1,591 @@
+package java_projects.demo.service;
+
+import java_projects.demo.domain.Friendship;
+import java_projects.demo.repository.FriendshipsListener;
+import java_projects.demo.repository.FriendshipsRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The friendships of all users, kept in memory. Every username gets a dense int id and the accepted friendships are
+ * stored as compressed sparse rows: the friends of user i are adjacency[offsets[i] .. offsets[i + 1]), sorted.
+ * Changes are kept in a small delta on top of the rows and merged into new rows when the delta grows.
+ * Friend requests that are still pending are kept apart from the accepted friendships
+ */
+public class FriendshipGraph implements FriendshipsListener {
+    private static final int MINIMUM_COMPACTION_DELTA = 1024;
+
+    /**
+     * The accepted friendships at one moment. The arrays are never changed, so a snapshot can be read by many
+     * threads while the graph keeps changing
+     */
+    public static final class Snapshot {
+        private final int[] offsets;
+        private final int[] adjacency;
+        private final long version;
+
+        private Snapshot(int[] offsets, int[] adjacency, long version) {
+            this.offsets = offsets;
+            this.adjacency = adjacency;
+            this.version = version;
+        }
+
+        /**
+         * Returns the version of the graph the snapshot was taken at
+         *
+         * @return long
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        public int getUserCount() {
+            return offsets.length - 1;
+        }
+
+        /**
+         * Returns where the friends of the user start in the adjacency array
+         *
+         * @param userId - int
+         * @return int
+         */
+        public int friendsStart(int userId) {
+            return offsets[userId];
+        }
+
+        /**
+         * Returns where the friends of the user end in the adjacency array, exclusive
+         *
+         * @param userId - int
+         * @return int
+         */
+        public int friendsEnd(int userId) {
+            return offsets[userId + 1];
+        }
+
+        public int degree(int userId) {
+            return offsets[userId + 1] - offsets[userId];
+        }
+
+        /**
+         * Returns the array with the sorted friends of every user, one slice after the other. It must not be changed
+         *
+         * @return int[]
+         */
+        public int[] getAdjacency() {
+            return adjacency;
+        }
+    }
+
+    private final Map<String, Integer> idOfUsername = new HashMap<>();
+    private final List<String> usernames = new ArrayList<>();
+
+    private Snapshot rows = new Snapshot(new int[1], new int[0], 0);
+    private final Map<Integer, Set<Integer>> addedFriends = new HashMap<>();
+    private final Set<Long> removedFriendships = new HashSet<>();
+    private int deltaSize = 0;
+
+    private final Map<Integer, Set<Integer>> outgoingRequests = new HashMap<>();
+    private final Map<Integer, Set<Integer>> incomingRequests = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // changed by every change of the friendships, so results computed from the graph can tell they are outdated
+    private long version = 0;
+    private final View view = new View();
+
+    /**
+     * The friendships as they are now: the rows and the changes not merged into them yet. A view is only handed out
+     * by read, under the read lock of the graph, and must not be used after the reader returns
+     */
+    public final class View {
+        private View() {
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * Returns the rows without the changes that are not merged into them yet
+         *
+         * @return Snapshot
+         */
+        public Snapshot getRows() {
+            return rows;
+        }
+
+        /**
+         * Returns true if some changes are not merged into the rows yet
+         *
+         * @return boolean
+         */
+        public boolean hasDelta() {
+            return deltaSize > 0;
+        }
+
+        public int getUserCount() {
+            return usernames.size();
+        }
+
+        /**
+         * Returns the id of the user in the graph
+         *
+         * @param username - String
+         * @return int - -1 if the user has no friendships and no requests
+         */
+        public int idOf(String username) {
+            return idOfUsername.getOrDefault(username, -1);
+        }
+
+        public String usernameOf(int userId) {
+            return usernames.get(userId);
+        }
+
+        /**
+         * Returns the ids of the friends of the user, sorted, with the changes not merged into the rows yet
+         *
+         * @param userId - int
+         * @return int[]
+         */
+        public int[] friendIdsOf(int userId) {
+            return FriendshipGraph.this.friendIdsOf(userId);
+        }
+    }
+
+    /**
+     * Reads the graph under its read lock
+     *
+     * @param <T> the result of the reader
+     */
+    @FunctionalInterface
+    public interface Reader<T> {
+        T read(View view);
+    }
+
+    /**
+     * Constructor for a graph of the given friendships
+     *
+     * @param friendships - Iterable < Friendship >
+     */
+    public FriendshipGraph(Iterable<Friendship> friendships) {
+        loadAll(friendships);
+    }
+
+    /**
+     * Builds the graph from every friendship of the repository and keeps it up to date with the changes made
+     * through the repository
+     *
+     * @param friendshipsRepository - FriendshipsRepository
+     * @return FriendshipGraph
+     */
+    public static FriendshipGraph load(FriendshipsRepository friendshipsRepository) {
+        FriendshipGraph graph = new FriendshipGraph(Collections.emptyList());
+        graph.lock.writeLock().lock();
+        try {
+            // changes made while the friendships are read wait for the lock and are applied afterwards
+            friendshipsRepository.addListener(graph);
+            graph.loadAll(friendshipsRepository.findAll());
+        } finally {
+            graph.lock.writeLock().unlock();
+        }
+        return graph;
+    }
+
+    /**
+     * Replaces the graph with the given friendships. The accepted friendships are written straight into new rows,
+     * without going through the delta
+     *
+     * @param friendships - Iterable < Friendship >
+     */
+    private void loadAll(Iterable<Friendship> friendships) {
+        int[] ends1 = new int[1024];
+        int[] ends2 = new int[1024];
+        int friendshipCount = 0;
+        for (Friendship friendship : friendships) {
+            if (friendship.getIsPending()) {
+                applyAdded(friendship);
+                continue;
+            }
+            int userId1 = intern(friendship.getIdFriend1());
+            int userId2 = intern(friendship.getIdFriend2());
+            if (userId1 == userId2)
+                continue;
+            if (friendshipCount == ends1.length) {
+                ends1 = Arrays.copyOf(ends1, friendshipCount * 2);
+                ends2 = Arrays.copyOf(ends2, friendshipCount * 2);
+            }
+            ends1[friendshipCount] = userId1;
+            ends2[friendshipCount++] = userId2;
+        }
+
+        int userCount = usernames.size();
+        int[] offsets = new int[userCount + 1];
+        for (int i = 0; i < friendshipCount; i++) {
+            offsets[ends1[i] + 1]++;
+            offsets[ends2[i] + 1]++;
+        }
+        for (int userId = 0; userId < userCount; userId++)
+            offsets[userId + 1] += offsets[userId];
+        int[] adjacency = new int[offsets[userCount]];
+        int[] next = Arrays.copyOf(offsets, userCount);
+        for (int i = 0; i < friendshipCount; i++) {
+            adjacency[next[ends1[i]]++] = ends2[i];
+            adjacency[next[ends2[i]]++] = ends1[i];
+        }
+
+        // sort every row and drop the friendships that were listed twice
+        int[] compactOffsets = new int[userCount + 1];
+        int size = 0;
+        for (int userId = 0; userId < userCount; userId++) {
+            Arrays.sort(adjacency, offsets[userId], offsets[userId + 1]);
+            for (int i = offsets[userId]; i < offsets[userId + 1]; i++)
+                if (i == offsets[userId] || adjacency[i] != adjacency[i - 1])
+                    adjacency[size++] = adjacency[i];
+            compactOffsets[userId + 1] = size;
+        }
+
+        version++;
+        rows = new Snapshot(compactOffsets, Arrays.copyOf(adjacency, size), version);
+        addedFriends.clear();
+        removedFriendships.clear();
+        deltaSize = 0;
+    }
+
+    private static long friendshipKey(int userId1, int userId2) {
+        return ((long) Math.min(userId1, userId2) << 32) | Math.max(userId1, userId2);
+    }
+
+    private int intern(String username) {
+        Integer id = idOfUsername.get(username);
+        if (id == null) {
+            id = usernames.size();
+            idOfUsername.put(username, id);
+            usernames.add(username);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the id of the user in this graph
+     *
+     * @param username - String
+     * @return int - -1 if the user has no friendships and no requests
+     */
+    public int idOf(String username) {
+        lock.readLock().lock();
+        try {
+            return idOfUsername.getOrDefault(username, -1);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the username of the user with given id in this graph
+     *
+     * @param userId - int
+     * @return String
+     */
+    public String usernameOf(int userId) {
+        lock.readLock().lock();
+        try {
+            return usernames.get(userId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getUserCount() {
+        lock.readLock().lock();
+        try {
+            return usernames.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void friendshipAdded(Friendship friendship) {
+        lock.writeLock().lock();
+        try {
+            version++;
+            applyAdded(friendship);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void friendshipRemoved(String username1, String username2) {
+        lock.writeLock().lock();
+        try {
+            Integer userId1 = idOfUsername.get(username1);
+            Integer userId2 = idOfUsername.get(username2);
+            if (userId1 == null || userId2 == null)
+                return;
+            version++;
+            removeRequest(userId1, userId2);
+            removeRequest(userId2, userId1);
+            removeFriends(userId1, userId2);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void applyAdded(Friendship friendship) {
+        int userId1 = intern(friendship.getIdFriend1());
+        int userId2 = intern(friendship.getIdFriend2());
+        if (userId1 == userId2)
+            return;
+        removeRequest(userId1, userId2);
+        removeRequest(userId2, userId1);
+        if (friendship.getIsPending()) {
+            boolean fromFirst = friendship.isFromUsername(friendship.getIdFriend1());
+            int sender = fromFirst ? userId1 : userId2;
+            int receiver = fromFirst ? userId2 : userId1;
+            outgoingRequests.computeIfAbsent(sender, key -> new HashSet<>()).add(receiver);
+            incomingRequests.computeIfAbsent(receiver, key -> new HashSet<>()).add(sender);
+        } else
+            addFriends(userId1, userId2);
+    }
+
+    private void removeRequest(int sender, int receiver) {
+        Set<Integer> outgoing = outgoingRequests.get(sender);
+        if (outgoing != null && outgoing.remove(receiver) && outgoing.isEmpty())
+            outgoingRequests.remove(sender);
+        Set<Integer> incoming = incomingRequests.get(receiver);
+        if (incoming != null && incoming.remove(sender) && incoming.isEmpty())
+            incomingRequests.remove(receiver);
+    }
+
+    private void addFriends(int userId1, int userId2) {
+        if (isFriendInRows(userId1, userId2)) {
+            if (removedFriendships.remove(friendshipKey(userId1, userId2)))
+                deltaSize--;
+            return;
+        }
+        if (addedFriends.computeIfAbsent(userId1, key -> new HashSet<>()).add(userId2)) {
+            addedFriends.computeIfAbsent(userId2, key -> new HashSet<>()).add(userId1);
+            deltaSize++;
+        }
+    }
+
+    private void removeFriends(int userId1, int userId2) {
+        Set<Integer> added = addedFriends.get(userId1);
+        if (added != null && added.remove(userId2)) {
+            addedFriends.get(userId2).remove(userId1);
+            deltaSize--;
+            return;
+        }
+        if (isFriendInRows(userId1, userId2) && removedFriendships.add(friendshipKey(userId1, userId2)))
+            deltaSize++;
+    }
+
+    private boolean isFriendInRows(int userId1, int userId2) {
+        if (userId1 >= rows.getUserCount())
+            return false;
+        return Arrays.binarySearch(rows.adjacency, rows.friendsStart(userId1), rows.friendsEnd(userId1), userId2) >= 0;
+    }
+
+    /**
+     * Returns the ids of the friends of the user, sorted
+     *
+     * @param userId - int
+     * @return int[]
+     */
+    private int[] friendIdsOf(int userId) {
+        Set<Integer> added = addedFriends.getOrDefault(userId, Collections.emptySet());
+        int[] rowFriends = userId < rows.getUserCount()
+                ? Arrays.copyOfRange(rows.adjacency, rows.friendsStart(userId), rows.friendsEnd(userId))
+                : new int[0];
+        if (added.isEmpty() && removedFriendships.isEmpty())
+            return rowFriends;
+
+        int[] friendIds = new int[rowFriends.length + added.size()];
+        int size = 0;
+        for (int friendId : rowFriends)
+            if (!removedFriendships.contains(friendshipKey(userId, friendId)))
+                friendIds[size++] = friendId;
+        for (int friendId : added)
+            friendIds[size++] = friendId;
+        friendIds = Arrays.copyOf(friendIds, size);
+        Arrays.sort(friendIds);
+        return friendIds;
+    }
+
+    private void compactIfNeeded() {
+        if (deltaSize > Math.max(MINIMUM_COMPACTION_DELTA, rows.adjacency.length / 8))
+            compact();
+    }
+
+    /**
+     * Merges the delta into new rows
+     */
+    private void compact() {
+        int userCount = usernames.size();
+        int[] offsets = new int[userCount + 1];
+        int[][] friendIds = new int[userCount][];
+        for (int userId = 0; userId < userCount; userId++) {
+            friendIds[userId] = friendIdsOf(userId);
+            offsets[userId + 1] = offsets[userId] + friendIds[userId].length;
+        }
+        int[] adjacency = new int[offsets[userCount]];
+        for (int userId = 0; userId < userCount; userId++)
+            System.arraycopy(friendIds[userId], 0, adjacency, offsets[userId], friendIds[userId].length);
+
+        rows = new Snapshot(offsets, adjacency, version);
+        addedFriends.clear();
+        removedFriendships.clear();
+        deltaSize = 0;
+    }
+
+    /**
+     * Reads the friendships as they are now under the read lock, together with the changes not merged into the rows
+     * yet, so reading never waits for a compaction
+     *
+     * @param reader - Reader - reads the view of the graph
+     * @return T - the result of the reader
+     */
+    public <T> T read(Reader<T> reader) {
+        lock.readLock().lock();
+        try {
+            return reader.read(view);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the accepted friendships as they are now, merging the pending changes into new rows first. Meant for
+     * the work on the whole graph, like computing the recommendations of every user; single queries use read
+     *
+     * @return Snapshot
+     */
+    public Snapshot snapshot() {
+        lock.writeLock().lock();
+        try {
+            if (deltaSize > 0 || rows.getUserCount() < usernames.size())
+                compact();
+            return rows;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the usernames of the friends of the user
+     *
+     * @param username - String
+     * @return List < String >
+     */
+    public List<String> getFriendsOf(String username) {
+        lock.readLock().lock();
+        try {
+            Integer userId = idOfUsername.get(username);
+            if (userId == null)
+                return new ArrayList<>();
+            return toUsernames(friendIdsOf(userId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of friends of the user
+     *
+     * @param username - String
+     * @return int
+     */
+    public int degree(String username) {
+        lock.readLock().lock();
+        try {
+            Integer userId = idOfUsername.get(username);
+            if (userId == null)
+                return 0;
+            int degree = addedFriends.getOrDefault(userId, Collections.emptySet()).size();
+            if (userId >= rows.getUserCount())
+                return degree;
+            if (removedFriendships.isEmpty())
+                return degree + rows.degree(userId);
+            for (int i = rows.friendsStart(userId); i < rows.friendsEnd(userId); i++)
+                if (!removedFriendships.contains(friendshipKey(userId, rows.adjacency[i])))
+                    degree++;
+            return degree;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns true if the users are friends; a pending request doesn't count
+     *
+     * @param username1 - String
+     * @param username2 - String
+     * @return boolean
+     */
+    public boolean areFriends(String username1, String username2) {
+        lock.readLock().lock();
+        try {
+            Integer userId1 = idOfUsername.get(username1);
+            Integer userId2 = idOfUsername.get(username2);
+            if (userId1 == null || userId2 == null)
+                return false;
+            if (addedFriends.getOrDefault(userId1, Collections.emptySet()).contains(userId2))
+                return true;
+            return !removedFriendships.contains(friendshipKey(userId1, userId2)) && isFriendInRows(userId1, userId2);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the users that sent a friend request to the user, that was not accepted yet
+     *
+     * @param username - String
+     * @return List < String >
+     */
+    public List<String> getIncomingRequests(String username) {
+        return getRequests(incomingRequests, username);
+    }
+
+    /**
+     * Returns the users the user sent a friend request to, that was not accepted yet
+     *
+     * @param username - String
+     * @return List < String >
+     */
+    public List<String> getOutgoingRequests(String username) {
+        return getRequests(outgoingRequests, username);
+    }
+
+    private List<String> getRequests(Map<Integer, Set<Integer>> requests, String username) {
+        lock.readLock().lock();
+        try {
+            Integer userId = idOfUsername.get(username);
+            if (userId == null)
+                return new ArrayList<>();
+            Set<Integer> requestIds = requests.getOrDefault(userId, Collections.emptySet());
+            return toUsernames(requestIds.stream().mapToInt(Integer::intValue).sorted().toArray());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<String> toUsernames(int[] userIds) {
+        List<String> result = new ArrayList<>(userIds.length);
+        for (int userId : userIds)
+            result.add(usernames.get(userId));
+        return result;
+    }
+}
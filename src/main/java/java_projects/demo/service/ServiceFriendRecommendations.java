@@ -0,0 +1,338 @@
+package java_projects.demo.service;
+
+import java_projects.demo.domain.FriendRecommendation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Recommends "people you may know": the users that are not friends with a user yet, ranked by how many friends they
+ * have in common with them. The recommendations of every user can be computed at once on all cores; the users whose
+ * recommendations were not computed, or were computed before the graph changed, are computed when they are asked for
+ */
+public class ServiceFriendRecommendations {
+    public static final int DEFAULT_TOP_K = 10;
+
+    private static final int USERS_PER_TASK = 512;
+
+    /**
+     * The best recommendations of every user, computed from one snapshot of the graph
+     */
+    private static final class Precomputed {
+        private final FriendshipGraph.Snapshot snapshot;
+        private final int[][] recommendedIds;
+        private final int[][] mutualFriends;
+
+        private Precomputed(FriendshipGraph.Snapshot snapshot) {
+            this.snapshot = snapshot;
+            this.recommendedIds = new int[snapshot.getUserCount()][];
+            this.mutualFriends = new int[snapshot.getUserCount()][];
+        }
+    }
+
+    /**
+     * Counts the mutual friends of one user with every second-degree contact. The counts array has a slot for every
+     * user of the graph and only the touched slots are cleared after each user, so a counter is reused for many
+     * users and many queries; the counters are kept in a small pool instead of one for every thread
+     */
+    private static final class MutualFriendsCounter {
+        private final int topK;
+        private int[] counts = new int[0];
+        private int[] touched = new int[0];
+        private int touchedCount = 0;
+        private final int[] heapIds;
+        private final int[] heapCounts;
+
+        private MutualFriendsCounter(int topK) {
+            this.topK = topK;
+            this.heapIds = new int[topK];
+            this.heapCounts = new int[topK];
+        }
+
+        /**
+         * Makes room for the users of the graph; the counts are all zero between two uses, so the new slots are too
+         */
+        private void ensureCapacity(int userCount) {
+            if (counts.length >= userCount)
+                return;
+            int capacity = Math.max(userCount, counts.length + (counts.length >> 1));
+            counts = new int[capacity];
+            touched = new int[capacity];
+        }
+
+        private void count(int candidateId) {
+            if (counts[candidateId]++ == 0)
+                touched[touchedCount++] = candidateId;
+        }
+
+        /**
+         * Computes the best recommendations of the user from the rows of a snapshot, best first
+         *
+         * @param snapshot - FriendshipGraph.Snapshot
+         * @param userId   - int
+         * @return int[][] - the ids of the recommended users and their numbers of mutual friends
+         */
+        private int[][] recommend(FriendshipGraph.Snapshot snapshot, int userId) {
+            ensureCapacity(snapshot.getUserCount());
+            if (userId >= snapshot.getUserCount())
+                return new int[][]{new int[0], new int[0]};
+            int[] adjacency = snapshot.getAdjacency();
+            for (int i = snapshot.friendsStart(userId); i < snapshot.friendsEnd(userId); i++) {
+                int friendId = adjacency[i];
+                for (int j = snapshot.friendsStart(friendId); j < snapshot.friendsEnd(friendId); j++)
+                    count(adjacency[j]);
+            }
+            return best(userId, adjacency, snapshot.friendsStart(userId), snapshot.friendsEnd(userId));
+        }
+
+        /**
+         * Computes the best recommendations of the user from a view of the graph, with the changes that are not
+         * merged into the rows yet, best first
+         *
+         * @param view   - FriendshipGraph.View
+         * @param userId - int
+         * @return int[][] - the ids of the recommended users and their numbers of mutual friends
+         */
+        private int[][] recommend(FriendshipGraph.View view, int userId) {
+            if (!view.hasDelta())
+                return recommend(view.getRows(), userId);
+            ensureCapacity(view.getUserCount());
+            int[] friendIds = view.friendIdsOf(userId);
+            for (int friendId : friendIds)
+                for (int candidateId : view.friendIdsOf(friendId))
+                    count(candidateId);
+            return best(userId, friendIds, 0, friendIds.length);
+        }
+
+        /**
+         * Takes the best of the counted candidates and clears the counts
+         *
+         * @param userId       - int - the user the candidates are counted for
+         * @param friendIds    - int[] - holds the friends of the user in [friendsStart, friendsEnd)
+         * @param friendsStart - int
+         * @param friendsEnd   - int
+         * @return int[][] - the ids of the recommended users and their numbers of mutual friends
+         */
+        private int[][] best(int userId, int[] friendIds, int friendsStart, int friendsEnd) {
+            // the user and their friends are not recommended
+            counts[userId] = 0;
+            for (int i = friendsStart; i < friendsEnd; i++)
+                counts[friendIds[i]] = 0;
+
+            int heapSize = 0;
+            for (int t = 0; t < touchedCount; t++) {
+                int candidateId = touched[t];
+                int count = counts[candidateId];
+                counts[candidateId] = 0;
+                if (count == 0)
+                    continue;
+                if (heapSize < topK) {
+                    heapIds[heapSize] = candidateId;
+                    heapCounts[heapSize] = count;
+                    siftUp(heapSize++);
+                } else if (isBetter(count, candidateId, heapCounts[0], heapIds[0])) {
+                    heapIds[0] = candidateId;
+                    heapCounts[0] = count;
+                    siftDown(0, heapSize);
+                }
+            }
+            touchedCount = 0;
+
+            // taking the worst out of the heap one by one leaves the best first
+            int[] ids = new int[heapSize];
+            int[] mutual = new int[heapSize];
+            for (int size = heapSize; size > 0; size--) {
+                ids[size - 1] = heapIds[0];
+                mutual[size - 1] = heapCounts[0];
+                heapIds[0] = heapIds[size - 1];
+                heapCounts[0] = heapCounts[size - 1];
+                siftDown(0, size - 1);
+            }
+            return new int[][]{ids, mutual};
+        }
+
+        // more mutual friends is better; on equal counts the smaller id wins, so the result is stable
+        private static boolean isBetter(int count, int id, int otherCount, int otherId) {
+            return count > otherCount || (count == otherCount && id < otherId);
+        }
+
+        // the heap keeps the worst recommendation at the root
+        private void siftUp(int index) {
+            while (index > 0) {
+                int parent = (index - 1) / 2;
+                if (!isBetter(heapCounts[parent], heapIds[parent], heapCounts[index], heapIds[index]))
+                    return;
+                swap(index, parent);
+                index = parent;
+            }
+        }
+
+        private void siftDown(int index, int size) {
+            while (true) {
+                int worst = index;
+                for (int child = 2 * index + 1; child <= 2 * index + 2 && child < size; child++)
+                    if (isBetter(heapCounts[worst], heapIds[worst], heapCounts[child], heapIds[child]))
+                        worst = child;
+                if (worst == index)
+                    return;
+                swap(index, worst);
+                index = worst;
+            }
+        }
+
+        private void swap(int index1, int index2) {
+            int id = heapIds[index1];
+            heapIds[index1] = heapIds[index2];
+            heapIds[index2] = id;
+            int count = heapCounts[index1];
+            heapCounts[index1] = heapCounts[index2];
+            heapCounts[index2] = count;
+        }
+    }
+
+    /**
+     * Computes the recommendations of the users [fromUser, toUser), splitting the range while it is large
+     */
+    private final class PrecomputeTask extends RecursiveAction {
+        private final Precomputed precomputed;
+        private final int fromUser;
+        private final int toUser;
+
+        private PrecomputeTask(Precomputed precomputed, int fromUser, int toUser) {
+            this.precomputed = precomputed;
+            this.fromUser = fromUser;
+            this.toUser = toUser;
+        }
+
+        @Override
+        protected void compute() {
+            if (toUser - fromUser <= USERS_PER_TASK) {
+                MutualFriendsCounter counter = borrowCounter();
+                try {
+                    for (int userId = fromUser; userId < toUser; userId++) {
+                        int[][] result = counter.recommend(precomputed.snapshot, userId);
+                        precomputed.recommendedIds[userId] = result[0];
+                        precomputed.mutualFriends[userId] = result[1];
+                    }
+                } finally {
+                    releaseCounter(counter);
+                }
+                return;
+            }
+            int middle = (fromUser + toUser) >>> 1;
+            invokeAll(new PrecomputeTask(precomputed, fromUser, middle),
+                    new PrecomputeTask(precomputed, middle, toUser));
+        }
+    }
+
+    private final FriendshipGraph friendshipGraph;
+    private final int topK;
+    private final ForkJoinPool forkJoinPool;
+    private volatile Precomputed precomputed;
+    // at most maximumCounters counters are created; a query that finds none free waits for one
+    private final BlockingQueue<MutualFriendsCounter> freeCounters;
+    private final int maximumCounters;
+    private final AtomicInteger createdCounters = new AtomicInteger();
+
+    /**
+     * Constructor for a service that recommends the default number of users, computing on the common pool
+     *
+     * @param friendshipGraph - FriendshipGraph - the friendships the recommendations are based on
+     */
+    public ServiceFriendRecommendations(FriendshipGraph friendshipGraph) {
+        this(friendshipGraph, DEFAULT_TOP_K, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor for a service of friend recommendations
+     *
+     * @param friendshipGraph - FriendshipGraph - the friendships the recommendations are based on
+     * @param topK            - int - the maximum number of users recommended to a user; must be positive
+     * @param forkJoinPool    - ForkJoinPool - runs the computation for all users
+     */
+    public ServiceFriendRecommendations(FriendshipGraph friendshipGraph, int topK, ForkJoinPool forkJoinPool) {
+        if (topK <= 0)
+            throw new IllegalArgumentException("The number of recommendations must be positive!");
+        this.friendshipGraph = friendshipGraph;
+        this.topK = topK;
+        this.forkJoinPool = forkJoinPool;
+        this.maximumCounters = Math.max(forkJoinPool.getParallelism(), Runtime.getRuntime().availableProcessors());
+        this.freeCounters = new ArrayBlockingQueue<>(maximumCounters);
+    }
+
+    private MutualFriendsCounter borrowCounter() {
+        MutualFriendsCounter counter = freeCounters.poll();
+        if (counter != null)
+            return counter;
+        if (createdCounters.getAndIncrement() < maximumCounters)
+            return new MutualFriendsCounter(topK);
+        createdCounters.decrementAndGet();
+        try {
+            return freeCounters.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void releaseCounter(MutualFriendsCounter counter) {
+        freeCounters.offer(counter);
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
+    /**
+     * Computes the recommendations of every user on all cores of the pool. Until the graph changes, they are
+     * answered without computing anything
+     */
+    public void precomputeAll() {
+        Precomputed result = new Precomputed(friendshipGraph.snapshot());
+        forkJoinPool.invoke(new PrecomputeTask(result, 0, result.snapshot.getUserCount()));
+        precomputed = result;
+    }
+
+    /**
+     * Returns the users recommended as friends to the user, the ones with the most mutual friends first
+     *
+     * @param username - String
+     * @return List < FriendRecommendation > - at most topK recommendations
+     */
+    public List<FriendRecommendation> getRecommendations(String username) {
+        MutualFriendsCounter counter = borrowCounter();
+        try {
+            return friendshipGraph.read(view -> {
+                List<FriendRecommendation> recommendations = new ArrayList<>();
+                int userId = view.idOf(username);
+                if (userId < 0)
+                    return recommendations;
+
+                int[] recommendedIds;
+                int[] mutualFriends;
+                Precomputed current = precomputed;
+                if (current != null && current.snapshot.getVersion() == view.getVersion()
+                        && userId < current.snapshot.getUserCount()) {
+                    recommendedIds = current.recommendedIds[userId];
+                    mutualFriends = current.mutualFriends[userId];
+                } else {
+                    int[][] result = counter.recommend(view, userId);
+                    recommendedIds = result[0];
+                    mutualFriends = result[1];
+                }
+
+                for (int i = 0; i < recommendedIds.length; i++)
+                    recommendations.add(new FriendRecommendation(view.usernameOf(recommendedIds[i]),
+                            mutualFriends[i]));
+                return recommendations;
+            });
+        } finally {
+            releaseCounter(counter);
+        }
+    }
+}
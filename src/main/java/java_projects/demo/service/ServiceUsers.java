@@ -2,26 +2,26 @@ package java_projects.demo.service;
 
 import java_projects.demo.domain.User;
 import java_projects.demo.domain.UserProfile;
-import java_projects.demo.exceptions.SecurityFaultException;
-import java_projects.demo.repository.IRepository;
-import java_projects.demo.repository.UsersRepository;
+import java_projects.demo.repository.IUsersRepository;
 import java_projects.demo.validators.UserValidator;
-import java_projects.demo.validators.SqlInjectionValidator;
 import java_projects.demo.utils.PasswordEncryption;
 
 import java.util.ArrayList;
 import java.util.Collection;
 
 public class ServiceUsers {
+    private static final String SALT = "2kQf9XbT7mLp4sWz";
+    private static final String SECRET_KEY = "my-very-strong-password";
 
-    private final IRepository<String, User> usersRepo;
+    private final IUsersRepository usersRepo;
+    private UserNameIndex nameIndex;
 
     /**
      * Constructor for creating a service
      *
      * @param usersRepo - repository of users
      */
-    public ServiceUsers(IRepository<String, User> usersRepo) {
+    public ServiceUsers(IUsersRepository usersRepo) {
         this.usersRepo = usersRepo;
     }
 
@@ -43,7 +43,7 @@ public class ServiceUsers {
      * @return UserProfile
      */
     public UserProfile getUserProfileByUsername(String username) throws Exception {
-        UserProfile userProfile = ((UsersRepository) this.usersRepo).getUserProfileById(username);
+        UserProfile userProfile = this.usersRepo.getUserProfileById(username);
         if (userProfile == null)
             throw new Exception("User not found!");
         return userProfile;
@@ -60,14 +60,23 @@ public class ServiceUsers {
                         String gender) throws Exception {
         UserValidator.validate(firstName, lastName, email, username, password, gender);
 
-        String SALT = PasswordEncryption.getSalt(16);
-        String SECRET_KEY = "my-very-strong-password";
-
-        // Encrypt the password using the salt and secret key
-        String securePassword = PasswordEncryption.encrypt(password, SALT, SECRET_KEY);
+        // Encrypt the password with a random IV, so the key derived from the salt and secret key is derived only once
+        String securePassword = PasswordEncryption.encryptWithRandomIv(password, SALT, SECRET_KEY);
 
         User user = new User(username, securePassword, firstName, lastName, email, gender);
-        usersRepo.add(user);
+        if (usersRepo.add(user) == null)
+            addToNameIndex(user);
+    }
+
+    /**
+     * Adds the user to the index of names if it was built already; otherwise the first search builds it with the
+     * user in it, so a sign-up doesn't load every user
+     *
+     * @param user - User
+     */
+    private synchronized void addToNameIndex(User user) {
+        if (nameIndex != null)
+            nameIndex.addUser(user);
     }
 
     /**
@@ -95,33 +104,54 @@ public class ServiceUsers {
     }
 
     /**
-     * Returns a list with all users that have given name in their firstname or in their lastname
+     * Returns the index of the names of all users, built from the repository the first time it is needed
+     *
+     * @return UserNameIndex
+     */
+    private synchronized UserNameIndex getNameIndex() {
+        if (nameIndex == null) {
+            UserNameIndex index = new UserNameIndex();
+            index.addAll(usersRepo.findAll());
+            nameIndex = index;
+        }
+        return nameIndex;
+    }
+
+    /**
+     * Drops the index of names after the users were changed outside this service; the next search builds it again
+     */
+    public synchronized void rebuildNameIndex() {
+        nameIndex = null;
+    }
+
+    /**
+     * Returns a list with all users that have given name in their firstname or in their lastname.
+     * The users whose firstname or lastname starts with name come first
      *
      * @param name - String - the name we search
      * @return - ArrayList <User> - all users that have name
      */
     public ArrayList<User> getUsersByPartialName(String name) {
-        if (name.isEmpty())
-            return new ArrayList<>();
-        ArrayList<User> matchingUsers = new ArrayList<>();
-
-        name = name.toLowerCase();
-        Iterable<User> allUsers = this.getAllUsers();
-        for (User user : allUsers) {
-            if (user.getFirstName().toLowerCase().contains(name) || user.getLastName().toLowerCase().contains(name))
-                matchingUsers.add(user);
-        }
+        return getUsersByPartialName(name, Integer.MAX_VALUE);
+    }
 
-        return matchingUsers;
+    /**
+     * Returns at most limit users that have given name in their firstname or in their lastname.
+     * The users whose firstname or lastname starts with name come first
+     *
+     * @param name  - String - the name we search
+     * @param limit - int - the maximum number of users returned
+     * @return - ArrayList <User> - the users that have name
+     */
+    public ArrayList<User> getUsersByPartialName(String name, int limit) {
+        return new ArrayList<>(getNameIndex().search(name, limit));
     }
 
-    public void updateDescription(String newDescription, String username) throws SecurityFaultException {
-        SqlInjectionValidator.validate(newDescription, username);
-        ((UsersRepository) this.usersRepo).updateDescription(newDescription, username);
+    public void updateDescription(String newDescription, String username) {
+        this.usersRepo.updateDescription(newDescription, username);
     }
 
-    public void changeProfilePicturePath(String newPath, String username) throws SecurityFaultException {
-        SqlInjectionValidator.validate(newPath, username);
-        ((UsersRepository) this.usersRepo).changeProfilePicturePath(newPath, username);
+    public void changeProfilePicturePath(String newPath, String username) {
+        this.usersRepo.changeProfilePicturePath(newPath, username);
     }
 }
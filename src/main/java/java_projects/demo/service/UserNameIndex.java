@@ -0,0 +1,265 @@
+package java_projects.demo.service;
+
+import java_projects.demo.domain.User;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An in-memory index over the first and last names of the users, used to find the users that have some text in
+ * one of their names without scanning all of them. Every trigram of a name points to the users whose names contain
+ * it, and so does every single character and pair of characters, for the texts shorter than a trigram; the names
+ * themselves are kept sorted, so the users whose names start with the text are found first
+ */
+public class UserNameIndex {
+    private static final int GRAM_LENGTH = 3;
+    // the index is compacted once at least this many slots are dead and they are more than the live ones
+    private static final int MINIMUM_DEAD_SLOTS_TO_COMPACT = 1024;
+
+    /**
+     * A growing sorted list of user slots
+     */
+    private static final class Postings {
+        private int[] slots = new int[4];
+        private int size = 0;
+
+        private void add(int slot) {
+            // the names of a user are indexed together, so a repeated trigram is always the last slot
+            if (size > 0 && slots[size - 1] == slot)
+                return;
+            if (size == slots.length)
+                slots = Arrays.copyOf(slots, size * 2);
+            slots[size++] = slot;
+        }
+    }
+
+    // every version of a user gets a new slot; the slot of a removed or changed user keeps null until the index is
+    // compacted
+    private final List<User> users = new ArrayList<>();
+    private final List<String[]> lowerCaseNames = new ArrayList<>();
+    private final Map<String, Integer> slotOfUsername = new HashMap<>();
+    private final Map<Long, Postings> postingsOfGram = new HashMap<>();
+    private final NavigableMap<String, List<Integer>> slotsOfName = new TreeMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private int deadSlots = 0;
+
+    /**
+     * Adds a user to the index, replacing the user with the same username
+     *
+     * @param user - User
+     */
+    public void addUser(User user) {
+        lock.writeLock().lock();
+        try {
+            removeSlot(user.getUsername());
+            addSlot(user);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addSlot(User user) {
+        int slot = users.size();
+        String[] names = {user.getFirstName().toLowerCase(), user.getLastName().toLowerCase()};
+        users.add(user);
+        lowerCaseNames.add(names);
+        slotOfUsername.put(user.getUsername(), slot);
+        for (String name : names) {
+            slotsOfName.computeIfAbsent(name, key -> new ArrayList<>(1)).add(slot);
+            for (int length = 1; length <= GRAM_LENGTH; length++)
+                for (int i = 0; i + length <= name.length(); i++)
+                    postingsOfGram.computeIfAbsent(gramKey(name, i, length), key -> new Postings()).add(slot);
+        }
+    }
+
+    /**
+     * Adds every user to the index
+     *
+     * @param users - Iterable < User >
+     */
+    public void addAll(Iterable<User> users) {
+        for (User user : users)
+            addUser(user);
+    }
+
+    /**
+     * Removes the user with given username from the index
+     *
+     * @param username - String
+     */
+    public void removeUser(String username) {
+        lock.writeLock().lock();
+        try {
+            removeSlot(username);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeSlot(String username) {
+        Integer slot = slotOfUsername.remove(username);
+        if (slot == null)
+            return;
+        // the postings keep the slot; searches skip it because its user is null
+        for (String name : lowerCaseNames.get(slot)) {
+            List<Integer> slots = slotsOfName.get(name);
+            slots.remove(slot);
+            if (slots.isEmpty())
+                slotsOfName.remove(name);
+        }
+        users.set(slot, null);
+        lowerCaseNames.set(slot, null);
+        deadSlots++;
+    }
+
+    /**
+     * Builds the index again from the live users once the dead slots take more room than them, so removed and
+     * changed users don't make the postings grow forever
+     */
+    private void compactIfNeeded() {
+        if (deadSlots < MINIMUM_DEAD_SLOTS_TO_COMPACT || deadSlots * 2 <= users.size())
+            return;
+        List<User> liveUsers = new ArrayList<>(users.size() - deadSlots);
+        for (User user : users)
+            if (user != null)
+                liveUsers.add(user);
+        users.clear();
+        lowerCaseNames.clear();
+        slotOfUsername.clear();
+        postingsOfGram.clear();
+        slotsOfName.clear();
+        deadSlots = 0;
+        // the live users keep their order, so the postings stay sorted
+        for (User user : liveUsers)
+            addSlot(user);
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slotOfUsername.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the users that have the text in their firstname or in their lastname, ignoring the case.
+     * The users with a name that starts with the text come first, in the order of their names
+     *
+     * @param text  - String - the text we search
+     * @param limit - int - the maximum number of users returned
+     * @return List < User >
+     */
+    public List<User> search(String text, int limit) {
+        List<User> matchingUsers = new ArrayList<>();
+        if (text.isEmpty() || limit <= 0)
+            return matchingUsers;
+        String query = text.toLowerCase();
+
+        lock.readLock().lock();
+        try {
+            Set<Integer> added = new HashSet<>();
+            for (List<Integer> slots : slotsOfName.subMap(query, true, query + Character.MAX_VALUE, false).values()) {
+                for (int slot : slots) {
+                    if (added.add(slot)) {
+                        matchingUsers.add(users.get(slot));
+                        if (matchingUsers.size() == limit)
+                            return matchingUsers;
+                    }
+                }
+            }
+
+            for (int slot : findCandidates(query)) {
+                if (matchingUsers.size() == limit)
+                    break;
+                if (!added.contains(slot))
+                    addIfMatching(matchingUsers, slot, query);
+            }
+            return matchingUsers;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void addIfMatching(List<User> matchingUsers, int slot, String query) {
+        String[] names = lowerCaseNames.get(slot);
+        if (names == null)
+            return;
+        for (String name : names) {
+            if (name.contains(query)) {
+                matchingUsers.add(users.get(slot));
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the slots that contain every trigram of the query, in increasing order. Every user that has the
+     * query in one of their names is a candidate, but a candidate may have the trigrams spread over both names.
+     * A query shorter than a trigram is a gram itself, so its postings hold exactly the users that have it
+     *
+     * @param query - String
+     * @return int[]
+     */
+    private int[] findCandidates(String query) {
+        if (query.length() < GRAM_LENGTH) {
+            Postings postings = postingsOfGram.get(gramKey(query, 0, query.length()));
+            return postings == null ? new int[0] : Arrays.copyOf(postings.slots, postings.size);
+        }
+
+        List<Postings> gramPostings = new ArrayList<>();
+        for (int i = 0; i + GRAM_LENGTH <= query.length(); i++) {
+            Postings postings = postingsOfGram.get(gramKey(query, i, GRAM_LENGTH));
+            if (postings == null)
+                return new int[0];
+            gramPostings.add(postings);
+        }
+        gramPostings.sort((postings1, postings2) -> Integer.compare(postings1.size, postings2.size));
+
+        int[] candidates = Arrays.copyOf(gramPostings.get(0).slots, gramPostings.get(0).size);
+        int size = candidates.length;
+        for (int i = 1; i < gramPostings.size() && size > 0; i++)
+            size = intersect(candidates, size, gramPostings.get(i));
+        return Arrays.copyOf(candidates, size);
+    }
+
+    /**
+     * Keeps in the first size values of candidates only the slots that are also in postings
+     *
+     * @return int - the number of slots that were kept
+     */
+    private static int intersect(int[] candidates, int size, Postings postings) {
+        int kept = 0;
+        int j = 0;
+        for (int i = 0; i < size && j < postings.size; i++) {
+            while (j < postings.size && postings.slots[j] < candidates[i])
+                j++;
+            if (j < postings.size && postings.slots[j] == candidates[i])
+                candidates[kept++] = candidates[i];
+        }
+        return kept;
+    }
+
+    /**
+     * Packs the characters of a gram into a key, starting with its length, so grams of different lengths never
+     * share a key
+     */
+    private static long gramKey(String text, int start, int length) {
+        long key = length;
+        for (int i = start; i < start + length; i++)
+            key = (key << 16) | text.charAt(i);
+        return key;
+    }
+}
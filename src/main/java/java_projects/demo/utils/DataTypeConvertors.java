@@ -1,8 +1,40 @@
 package java_projects.demo.utils;
 
 import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.TextStyle;
+import java.time.temporal.ChronoField;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
 
 public class DataTypeConvertors {
+    // the formatters are immutable and thread safe, so they are built once
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ISO_LOCAL_DATE;
+    private static final DateTimeFormatter COMPRESSED_TIME = DateTimeFormatter.ofPattern("H:mm");
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("H:m:s");
+    private static final DateTimeFormatter MONTH_AND_DAY = new DateTimeFormatterBuilder()
+            .appendText(ChronoField.MONTH_OF_YEAR, shortMonthNames())
+            .appendLiteral(' ')
+            .appendValue(ChronoField.DAY_OF_MONTH)
+            .toFormatter(Locale.ENGLISH);
+    private static final DateTimeFormatter FULL_DATE = new DateTimeFormatterBuilder()
+            .appendValue(ChronoField.YEAR)
+            .appendLiteral(' ')
+            .append(MONTH_AND_DAY)
+            .toFormatter(Locale.ENGLISH);
+
+    // the names of the months are shown in capitals, like "MAR"
+    private static Map<Long, String> shortMonthNames() {
+        Map<Long, String> names = new HashMap<>();
+        for (Month month : Month.values())
+            names.put((long) month.getValue(), month.getDisplayName(TextStyle.SHORT, Locale.ENGLISH)
+                    .toUpperCase(Locale.ENGLISH));
+        return names;
+    }
+
     /**
      * Converts the date from LocalDateTome to a string of form "YYYY-MM-DD"
      *
@@ -10,10 +42,7 @@ public class DataTypeConvertors {
      * @return String
      */
     public static String getDateStringFromDateTime(LocalDateTime dateTime) {
-        String stringDate = String.valueOf(dateTime.getYear());
-        stringDate = stringDate + "-" + String.valueOf(dateTime.getMonth());
-        stringDate = stringDate + "-" + String.valueOf(dateTime.getDayOfMonth());
-        return stringDate;
+        return DATE.format(dateTime);
     }
 
     /**
@@ -23,12 +52,7 @@ public class DataTypeConvertors {
      * @return String
      */
     public static String getCompressedTimeStringFromDateTime(LocalDateTime dateTime) {
-        String stringTime = String.valueOf(dateTime.getHour());
-        stringTime = stringTime + ":";
-        if (dateTime.getMinute() < 10)
-            stringTime = stringTime + "0";
-        stringTime = stringTime + String.valueOf(dateTime.getMinute());
-        return stringTime;
+        return COMPRESSED_TIME.format(dateTime);
     }
 
     /**
@@ -38,34 +62,19 @@ public class DataTypeConvertors {
      * @return String
      */
     public static String getTimeStringFromDateTime(LocalDateTime dateTime) {
-        String stringTime = String.valueOf(dateTime.getHour());
-        stringTime = stringTime + ":" + String.valueOf(dateTime.getMinute());
-        stringTime = stringTime + ":" + String.valueOf(dateTime.getSecond());
-        return stringTime;
-    }
-
-    private static String getMonthAndDay(LocalDateTime dateTime) {
-        String stringDate = String.valueOf(dateTime.getMonth()).substring(0, 3);
-        stringDate = stringDate + " " + String.valueOf(dateTime.getDayOfMonth());
-        return stringDate;
-    }
-
-    private static String getFullDate(LocalDateTime dateTime) {
-        String stringDate = String.valueOf(dateTime.getYear());
-        stringDate = stringDate + " " + String.valueOf(dateTime.getMonth()).substring(0, 3);
-        stringDate = stringDate + " " + String.valueOf(dateTime.getDayOfMonth());
-        return stringDate;
+        return TIME.format(dateTime);
     }
 
     /**
-     * Converts the date from LocalDateTome to a string of form "YYYY-MM-DD"
+     * Converts the date from LocalDateTome to a string of form "MMM DD", or "YYYY MMM DD" if the date is not from the
+     * current year
      *
      * @param dateTime - LocalDateTime
      * @return String
      */
     public static String getDateStringFromDateTimeCompressed(LocalDateTime dateTime) {
         if (dateTime.getYear() == LocalDateTime.now().getYear())
-            return getMonthAndDay(dateTime);
-        return getFullDate(dateTime);
+            return MONTH_AND_DAY.format(dateTime);
+        return FULL_DATE.format(dateTime);
     }
 }
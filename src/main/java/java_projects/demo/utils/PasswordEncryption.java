@@ -1,33 +1,77 @@
 package java_projects.demo.utils;
 
 import javax.crypto.Cipher;
-import javax.crypto.SecretKey;
 import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.PBEKeySpec;
 import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.SecureRandom;
-import java.security.spec.KeySpec;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class PasswordEncryption {
     private static final Random RANDOM = new SecureRandom();
     private static final String ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
 
-    public static String encrypt(String strToEncrypt, String SALT, String SECRET_KEY) {
+    private static final int KEY_ITERATIONS = 65536;
+    private static final int KEY_LENGTH = 256;
+    private static final int IV_LENGTH = 16;
+    private static final IvParameterSpec ZERO_IV = new IvParameterSpec(new byte[IV_LENGTH]);
+    private static final int MAXIMUM_CACHED_KEYS = 1024;
+
+    // deriving a key is the expensive part, so every key is derived once for its secret key and salt. The keys are
+    // immutable and shared by all threads; Cipher and SecretKeyFactory are not thread safe, so every thread has its own
+    private static final Map<String, SecretKeySpec> DERIVED_KEYS = new ConcurrentHashMap<>();
+    private static final ThreadLocal<Cipher> CIPHER = ThreadLocal.withInitial(() -> {
+        try {
+            return Cipher.getInstance("AES/CBC/PKCS5Padding");
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException(e);
+        }
+    });
+    private static final ThreadLocal<SecretKeyFactory> KEY_FACTORY = ThreadLocal.withInitial(() -> {
         try {
-            byte[] iv = {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0};
-            IvParameterSpec ivspec = new IvParameterSpec(iv);
+            return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException(e);
+        }
+    });
 
-            SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
-            KeySpec spec = new PBEKeySpec(SECRET_KEY.toCharArray(), SALT.getBytes(), 65536, 256);
-            SecretKey tmp = factory.generateSecret(spec);
-            SecretKeySpec secretKey = new SecretKeySpec(tmp.getEncoded(), "AES");
+    /**
+     * Returns the AES key derived from the secret key and the salt, deriving it only the first time
+     *
+     * @param SALT       - String
+     * @param SECRET_KEY - String
+     * @return SecretKeySpec
+     */
+    private static SecretKeySpec getKey(String SALT, String SECRET_KEY) throws GeneralSecurityException {
+        String cacheKey = SECRET_KEY + '\u0000' + SALT;
+        SecretKeySpec key = DERIVED_KEYS.get(cacheKey);
+        if (key != null)
+            return key;
 
-            Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
-            cipher.init(Cipher.ENCRYPT_MODE, secretKey, ivspec);
+        PBEKeySpec spec = new PBEKeySpec(SECRET_KEY.toCharArray(), SALT.getBytes(), KEY_ITERATIONS, KEY_LENGTH);
+        try {
+            key = new SecretKeySpec(KEY_FACTORY.get().generateSecret(spec).getEncoded(), "AES");
+        } finally {
+            spec.clearPassword();
+        }
+        // a different salt for every call would fill the cache with keys that are never used again
+        if (DERIVED_KEYS.size() >= MAXIMUM_CACHED_KEYS)
+            DERIVED_KEYS.clear();
+        DERIVED_KEYS.put(cacheKey, key);
+        return key;
+    }
+
+    public static String encrypt(String strToEncrypt, String SALT, String SECRET_KEY) {
+        try {
+            Cipher cipher = CIPHER.get();
+            cipher.init(Cipher.ENCRYPT_MODE, getKey(SALT, SECRET_KEY), ZERO_IV);
             return Base64.getEncoder()
                     .encodeToString(cipher.doFinal(strToEncrypt.getBytes(StandardCharsets.UTF_8)));
         } catch (Exception e) {
@@ -38,17 +82,55 @@ public class PasswordEncryption {
 
     public static String decrypt(String strToDecrypt, String SALT, String SECRET_KEY) {
         try {
-            byte[] iv = {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0};
-            IvParameterSpec ivspec = new IvParameterSpec(iv);
+            Cipher cipher = CIPHER.get();
+            cipher.init(Cipher.DECRYPT_MODE, getKey(SALT, SECRET_KEY), ZERO_IV);
+            return new String(cipher.doFinal(Base64.getDecoder().decode(strToDecrypt)));
+        } catch (Exception e) {
+            System.out.println("Error while decrypting: " + e);
+        }
+        return null;
+    }
+
+    /**
+     * Encrypts the text with a random IV, which is stored in front of the encrypted bytes. Two encryptions of the
+     * same text give different results, so the salt and the derived key can be the same for every call
+     *
+     * @param strToEncrypt - String - the text we encrypt
+     * @param SALT         - String - the salt of the derived key
+     * @param SECRET_KEY   - String - the secret the key is derived from
+     * @return String - the IV and the encrypted text, in Base64; null if the text can't be encrypted
+     */
+    public static String encryptWithRandomIv(String strToEncrypt, String SALT, String SECRET_KEY) {
+        try {
+            byte[] iv = new byte[IV_LENGTH];
+            RANDOM.nextBytes(iv);
+            Cipher cipher = CIPHER.get();
+            cipher.init(Cipher.ENCRYPT_MODE, getKey(SALT, SECRET_KEY), new IvParameterSpec(iv));
+            byte[] encrypted = cipher.doFinal(strToEncrypt.getBytes(StandardCharsets.UTF_8));
 
-            SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
-            KeySpec spec = new PBEKeySpec(SECRET_KEY.toCharArray(), SALT.getBytes(), 65536, 256);
-            SecretKey tmp = factory.generateSecret(spec);
-            SecretKeySpec secretKey = new SecretKeySpec(tmp.getEncoded(), "AES");
+            byte[] result = Arrays.copyOf(iv, IV_LENGTH + encrypted.length);
+            System.arraycopy(encrypted, 0, result, IV_LENGTH, encrypted.length);
+            return Base64.getEncoder().encodeToString(result);
+        } catch (Exception e) {
+            System.out.println("Error while encrypting: " + e);
+        }
+        return null;
+    }
 
-            Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5PADDING");
-            cipher.init(Cipher.DECRYPT_MODE, secretKey, ivspec);
-            return new String(cipher.doFinal(Base64.getDecoder().decode(strToDecrypt)));
+    /**
+     * Decrypts a text encrypted with encryptWithRandomIv
+     *
+     * @param strToDecrypt - String - the IV and the encrypted text, in Base64
+     * @param SALT         - String - the salt of the derived key
+     * @param SECRET_KEY   - String - the secret the key is derived from
+     * @return String - the decrypted text; null if the text can't be decrypted
+     */
+    public static String decryptWithRandomIv(String strToDecrypt, String SALT, String SECRET_KEY) {
+        try {
+            byte[] bytes = Base64.getDecoder().decode(strToDecrypt);
+            Cipher cipher = CIPHER.get();
+            cipher.init(Cipher.DECRYPT_MODE, getKey(SALT, SECRET_KEY), new IvParameterSpec(bytes, 0, IV_LENGTH));
+            return new String(cipher.doFinal(bytes, IV_LENGTH, bytes.length - IV_LENGTH), StandardCharsets.UTF_8);
         } catch (Exception e) {
             System.out.println("Error while decrypting: " + e);
         }
@@ -2,19 +2,182 @@ package java_projects.demo.validators;
 
 import java_projects.demo.exceptions.SecurityFaultException;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Rejects the inputs that contain one of the keywords, ignoring the case. All keywords are searched in a single pass
+ * over the input with an Aho-Corasick automaton, so a check allocates nothing and its cost does not grow with the
+ * number of keywords
+ */
 public class SqlInjectionValidator {
+    public static final List<String> DEFAULT_KEYWORDS = List.of("add", "delete", "update", "select");
+
+    private static final SqlInjectionValidator DEFAULT = new SqlInjectionValidator(DEFAULT_KEYWORDS);
+    private static final int ASCII = 128;
+
+    // the characters of the keywords are numbered from 1, both cases of a letter having the same class; every other
+    // character is class 0
+    private final int[] classOfAscii = new int[ASCII];
+    private final char[] otherChars;
+    private final int[] classOfOtherChars;
+    private final int classCount;
+    // a state is stored as its index multiplied by classCount, so transitions[state + class] is the next state and
+    // isFinal[state] tells if the state ends a keyword
+    private final int[] transitions;
+    private final boolean[] isFinal;
+
+    /**
+     * Constructor for a validator that rejects the inputs that contain one of the keywords
+     *
+     * @param keywords - Iterable < String > - the keywords, not empty
+     */
+    public SqlInjectionValidator(Iterable<String> keywords) {
+        List<String> lowerCaseKeywords = new ArrayList<>();
+        for (String keyword : keywords) {
+            if (keyword == null || keyword.isEmpty())
+                throw new IllegalArgumentException("The keywords can't be empty!");
+            lowerCaseKeywords.add(lowerCase(keyword));
+        }
+
+        StringBuilder other = new StringBuilder();
+        int classes = 1;
+        for (String keyword : lowerCaseKeywords) {
+            for (char c : keyword.toCharArray()) {
+                if (c < ASCII) {
+                    if (classOfAscii[c] == 0)
+                        classOfAscii[c] = classes++;
+                } else if (other.indexOf(String.valueOf(c)) < 0) {
+                    other.append(c);
+                }
+            }
+        }
+        otherChars = other.toString().toCharArray();
+        Arrays.sort(otherChars);
+        classOfOtherChars = new int[otherChars.length];
+        for (int i = 0; i < otherChars.length; i++)
+            classOfOtherChars[i] = classes++;
+        classCount = classes;
+
+        // the trie of the keywords; -1 marks a missing child
+        int maximumStates = 1;
+        for (String keyword : lowerCaseKeywords)
+            maximumStates += keyword.length();
+        int[] trie = new int[maximumStates * classCount];
+        Arrays.fill(trie, -1);
+        boolean[] ends = new boolean[maximumStates];
+        int states = 1;
+        for (String keyword : lowerCaseKeywords) {
+            int state = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                int index = state * classCount + classOf(keyword.charAt(i));
+                if (trie[index] < 0)
+                    trie[index] = states++;
+                state = trie[index];
+            }
+            ends[state] = true;
+        }
+
+        // a breadth-first walk replaces the missing children by the transitions of the failure state
+        transitions = Arrays.copyOf(trie, states * classCount);
+        int[] failure = new int[states];
+        int[] queue = new int[states];
+        int head = 0;
+        int tail = 0;
+        for (int c = 0; c < classCount; c++) {
+            if (transitions[c] < 0) {
+                transitions[c] = 0;
+            } else {
+                failure[transitions[c]] = 0;
+                queue[tail++] = transitions[c];
+            }
+        }
+        while (head < tail) {
+            int state = queue[head++];
+            ends[state] |= ends[failure[state]];
+            for (int c = 0; c < classCount; c++) {
+                int index = state * classCount + c;
+                int fallback = transitions[failure[state] * classCount + c];
+                if (transitions[index] < 0) {
+                    transitions[index] = fallback;
+                } else {
+                    failure[transitions[index]] = fallback;
+                    queue[tail++] = transitions[index];
+                }
+            }
+        }
+        isFinal = new boolean[transitions.length];
+        for (int i = 0; i < transitions.length; i++)
+            transitions[i] *= classCount;
+        for (int state = 0; state < states; state++)
+            isFinal[state * classCount] = ends[state];
+        for (int c = 'A'; c <= 'Z'; c++)
+            classOfAscii[c] = classOfAscii[Character.toLowerCase(c)];
+    }
+
+    /**
+     * Constructor for a validator that rejects the inputs that contain one of the keywords
+     *
+     * @param keywords - String... - the keywords, not empty
+     */
+    public SqlInjectionValidator(String... keywords) {
+        this(Arrays.asList(keywords));
+    }
+
+    /**
+     * Checks the inputs against the default keywords
+     *
+     * @param inputs - String... - the inputs; null inputs are skipped
+     * @throws SecurityFaultException if an input contains one of the keywords
+     */
     public static void validate(String... inputs) throws SecurityFaultException {
+        DEFAULT.check(inputs);
+    }
+
+    /**
+     * Checks the inputs against the keywords of this validator
+     *
+     * @param inputs - String... - the inputs; null inputs are skipped
+     * @throws SecurityFaultException if an input contains one of the keywords
+     */
+    public void check(String... inputs) throws SecurityFaultException {
         for (var input : inputs) {
-            if (input == null)
-                continue;
-            if (input.toLowerCase().contains("add"))
-                throw new SecurityFaultException();
-            if (input.toLowerCase().contains("delete"))
-                throw new SecurityFaultException();
-            if (input.toLowerCase().contains("update"))
-                throw new SecurityFaultException();
-            if (input.toLowerCase().contains("select"))
+            if (input != null && containsKeyword(input))
                 throw new SecurityFaultException();
         }
     }
+
+    /**
+     * Checks if the text contains one of the keywords, ignoring the case
+     *
+     * @param text - CharSequence
+     * @return boolean
+     */
+    public boolean containsKeyword(CharSequence text) {
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            state = transitions[state + (c < ASCII ? classOfAscii[c] : classOf(Character.toLowerCase(c)))];
+            if (isFinal[state])
+                return true;
+        }
+        return false;
+    }
+
+    private int classOf(char c) {
+        if (c < ASCII)
+            return classOfAscii[c];
+        if (otherChars.length == 0)
+            return 0;
+        int index = Arrays.binarySearch(otherChars, c);
+        return index < 0 ? 0 : classOfOtherChars[index];
+    }
+
+    private static String lowerCase(String keyword) {
+        char[] chars = keyword.toCharArray();
+        for (int i = 0; i < chars.length; i++)
+            chars[i] = Character.toLowerCase(chars[i]);
+        return new String(chars);
+    }
 }
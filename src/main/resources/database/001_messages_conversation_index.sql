@@ -0,0 +1,4 @@
+-- Serves the paged conversation queries of MessagesRepository: the messages of a pair of users, in both directions,
+-- ordered by the sending moment. Reading a page is a single backward range scan of this index.
+create index if not exists messages_conversation_moment_idx
+    on messages (least(sender, receiver), greatest(sender, receiver), messageDate, messageTime, idMessage);
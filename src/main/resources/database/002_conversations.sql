@@ -0,0 +1,36 @@
+-- One row for every conversation, keyed by the unordered pair of users (user1 <= user2, compared by code point like
+-- String.compareTo). MessagesRepository keeps it up to date when messages are added, removed or seen, so the inbox
+-- of a user is an index lookup instead of a scan of messages.
+create table if not exists conversations
+(
+    user1           varchar not null,
+    user2           varchar not null,
+    lastMessageId   bigint  not null,
+    lastMessageDate date    not null,
+    lastMessageTime time    not null,
+    unreadByUser1   int     not null default 0,
+    unreadByUser2   int     not null default 0,
+    primary key (user1, user2)
+);
+
+create index if not exists conversations_user2_idx on conversations (user2);
+
+insert into conversations(user1, user2, lastMessageId, lastMessageDate, lastMessageTime)
+select distinct on (least(sender collate "C", receiver collate "C"), greatest(sender collate "C", receiver collate "C"))
+       least(sender collate "C", receiver collate "C"),
+       greatest(sender collate "C", receiver collate "C"),
+       idMessage,
+       messageDate,
+       messageTime
+from messages
+order by least(sender collate "C", receiver collate "C"), greatest(sender collate "C", receiver collate "C"),
+         messageDate desc, messageTime desc, idMessage desc
+on conflict do nothing;
+
+update conversations cv
+set unreadByUser1 = (select count(*) from messages m
+                     where m.sender = cv.user2 and m.receiver = cv.user1 and not m.seen),
+    -- a user writing to themselves is the first user, whose count MessagesRepository keeps in unreadByUser1 only
+    unreadByUser2 = case when cv.user1 = cv.user2 then 0
+                         else (select count(*) from messages m
+                               where m.sender = cv.user1 and m.receiver = cv.user2 and not m.seen) end;
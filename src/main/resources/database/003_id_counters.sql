@@ -0,0 +1,12 @@
+-- Counters used by BlockIdAllocator. nextValue is the first id that was not reserved yet; allocators advance it by a
+-- whole block of ids at a time.
+create table if not exists id_counters
+(
+    name      varchar primary key,
+    nextValue bigint not null
+);
+
+insert into id_counters(name, nextValue)
+select 'messages', coalesce(max(idMessage), 0) + 1
+from messages
+on conflict do nothing;
@@ -0,0 +1,12 @@
+-- Serve the per-user friendship queries of FriendshipsRepository. A user can be stored in either column, so every
+-- query reads one range from the index on idFriend1 and one from the index on idFriend2, already ordered by the
+-- other user. Accepted friendships and pending requests are indexed apart, so a page never skips rows of the
+-- other kind.
+create index if not exists friendships_accepted_friend1_idx
+    on friendships (idFriend1, idFriend2) where not isPending;
+create index if not exists friendships_accepted_friend2_idx
+    on friendships (idFriend2, idFriend1) where not isPending;
+create index if not exists friendships_pending_friend1_idx
+    on friendships (idFriend1, isFromFirstFriend, idFriend2) where isPending;
+create index if not exists friendships_pending_friend2_idx
+    on friendships (idFriend2, isFromFirstFriend, idFriend1) where isPending;
@@ -0,0 +1,31 @@
+-- Store every moment in a single timestamp column instead of a date column and a time column. The repositories bind
+-- and read LocalDateTime directly, and the ordering and range conditions of the conversation queries compare one
+-- column, so they are served by one composite index.
+alter table messages add column if not exists messageMoment timestamp;
+update messages
+set messageMoment = messageDate + messageTime
+where messageMoment is null;
+alter table messages alter column messageMoment set not null;
+
+drop index if exists messages_conversation_moment_idx;
+alter table messages drop column if exists messageDate;
+alter table messages drop column if exists messageTime;
+create index if not exists messages_conversation_moment_idx
+    on messages (least(sender, receiver), greatest(sender, receiver), messageMoment, idMessage);
+
+-- the friendship moments used to be read as text, so both old columns are cast in case they were stored as text
+alter table friendships add column if not exists friendshipMoment timestamp;
+update friendships
+set friendshipMoment = cast(friendshipdate as date) + cast(friendshiptime as time(6))
+where friendshipMoment is null;
+alter table friendships alter column friendshipMoment set not null;
+alter table friendships drop column if exists friendshipdate;
+alter table friendships drop column if exists friendshiptime;
+
+alter table conversations add column if not exists lastMessageMoment timestamp;
+update conversations
+set lastMessageMoment = lastMessageDate + lastMessageTime
+where lastMessageMoment is null;
+alter table conversations alter column lastMessageMoment set not null;
+alter table conversations drop column if exists lastMessageDate;
+alter table conversations drop column if exists lastMessageTime;
@@ -0,0 +1,15 @@
+-- Keep the body of every message in a single column of messages instead of 256 character rows of messagesContent.
+-- bodyCodec tells how the body is stored: 0 is the UTF-8 text, 1 is the UTF-8 text compressed with Deflater (zlib
+-- format). The moved bodies are stored uncompressed; MessagesRepository compresses the long bodies it writes.
+alter table messages add column if not exists body bytea;
+alter table messages add column if not exists bodyCodec smallint not null default 0;
+
+update messages m
+set body = convert_to(coalesce((select string_agg(c.content, '' order by c.partOrder)
+                                from messagesContent c
+                                where c.idMessage = m.idMessage), ''), 'UTF8'),
+    bodyCodec = 0
+where m.body is null;
+
+alter table messages alter column body set not null;
+drop table if exists messagesContent;
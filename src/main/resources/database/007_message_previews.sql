@@ -0,0 +1,10 @@
+-- Store the beginning of every message next to it, so the list of conversations and the other lists of messages read
+-- small rows instead of the whole bodies. MessagesRepository writes the preview with every message and cuts it to
+-- its preview length when it reads it. Only the uncompressed bodies can be read here; the compressed ones keep a
+-- null preview, and their content is used as preview when it is asked for.
+alter table messages add column if not exists preview varchar;
+
+update messages
+set preview = left(convert_from(body, 'UTF8'), 100)
+where preview is null
+  and bodyCodec = 0;